@@ -1,1015 +0,0 @@
-// Generated by the protocol buffer compiler.  DO NOT EDIT!
-// NO CHECKED-IN PROTOBUF GENCODE
-// source: log_entry.proto
-// Protobuf Java Version: 4.27.0
-
-package dev.bytekv.proto;
-
-public final class LogEntryOuterClass {
-  private LogEntryOuterClass() {}
-  static {
-    com.google.protobuf.RuntimeVersion.validateProtobufGencodeVersion(
-      com.google.protobuf.RuntimeVersion.RuntimeDomain.PUBLIC,
-      /* major= */ 4,
-      /* minor= */ 27,
-      /* patch= */ 0,
-      /* suffix= */ "",
-      LogEntryOuterClass.class.getName());
-  }
-  public static void registerAllExtensions(
-      com.google.protobuf.ExtensionRegistryLite registry) {
-  }
-
-  public static void registerAllExtensions(
-      com.google.protobuf.ExtensionRegistry registry) {
-    registerAllExtensions(
-        (com.google.protobuf.ExtensionRegistryLite) registry);
-  }
-  public interface LogEntryOrBuilder extends
-      // @@protoc_insertion_point(interface_extends:dev.bytekv.proto.LogEntry)
-      com.google.protobuf.MessageOrBuilder {
-
-    /**
-     * <code>uint32 timestamp = 1;</code>
-     * @return The timestamp.
-     */
-    int getTimestamp();
-
-    /**
-     * <code>.dev.bytekv.proto.LogEntry.Operation op = 2;</code>
-     * @return The enum numeric value on the wire for op.
-     */
-    int getOpValue();
-    /**
-     * <code>.dev.bytekv.proto.LogEntry.Operation op = 2;</code>
-     * @return The op.
-     */
-    dev.bytekv.proto.LogEntryOuterClass.LogEntry.Operation getOp();
-
-    /**
-     * <code>string key = 3;</code>
-     * @return The key.
-     */
-    java.lang.String getKey();
-    /**
-     * <code>string key = 3;</code>
-     * @return The bytes for key.
-     */
-    com.google.protobuf.ByteString
-        getKeyBytes();
-
-    /**
-     * <code>string value = 4;</code>
-     * @return The value.
-     */
-    java.lang.String getValue();
-    /**
-     * <code>string value = 4;</code>
-     * @return The bytes for value.
-     */
-    com.google.protobuf.ByteString
-        getValueBytes();
-  }
-  /**
-   * Protobuf type {@code dev.bytekv.proto.LogEntry}
-   */
-  public static final class LogEntry extends
-      com.google.protobuf.GeneratedMessage implements
-      // @@protoc_insertion_point(message_implements:dev.bytekv.proto.LogEntry)
-      LogEntryOrBuilder {
-  private static final long serialVersionUID = 0L;
-    static {
-      com.google.protobuf.RuntimeVersion.validateProtobufGencodeVersion(
-        com.google.protobuf.RuntimeVersion.RuntimeDomain.PUBLIC,
-        /* major= */ 4,
-        /* minor= */ 27,
-        /* patch= */ 0,
-        /* suffix= */ "",
-        LogEntry.class.getName());
-    }
-    // Use LogEntry.newBuilder() to construct.
-    private LogEntry(com.google.protobuf.GeneratedMessage.Builder<?> builder) {
-      super(builder);
-    }
-    private LogEntry() {
-      op_ = 0;
-      key_ = "";
-      value_ = "";
-    }
-
-    public static final com.google.protobuf.Descriptors.Descriptor
-        getDescriptor() {
-      return dev.bytekv.proto.LogEntryOuterClass.internal_static_dev_bytekv_proto_LogEntry_descriptor;
-    }
-
-    @java.lang.Override
-    protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
-        internalGetFieldAccessorTable() {
-      return dev.bytekv.proto.LogEntryOuterClass.internal_static_dev_bytekv_proto_LogEntry_fieldAccessorTable
-          .ensureFieldAccessorsInitialized(
-              dev.bytekv.proto.LogEntryOuterClass.LogEntry.class, dev.bytekv.proto.LogEntryOuterClass.LogEntry.Builder.class);
-    }
-
-    /**
-     * Protobuf enum {@code dev.bytekv.proto.LogEntry.Operation}
-     */
-    public enum Operation
-        implements com.google.protobuf.ProtocolMessageEnum {
-      /**
-       * <code>PUT = 0;</code>
-       */
-      PUT(0),
-      /**
-       * <code>DELETE = 1;</code>
-       */
-      DELETE(1),
-      UNRECOGNIZED(-1),
-      ;
-
-      static {
-        com.google.protobuf.RuntimeVersion.validateProtobufGencodeVersion(
-          com.google.protobuf.RuntimeVersion.RuntimeDomain.PUBLIC,
-          /* major= */ 4,
-          /* minor= */ 27,
-          /* patch= */ 0,
-          /* suffix= */ "",
-          Operation.class.getName());
-      }
-      /**
-       * <code>PUT = 0;</code>
-       */
-      public static final int PUT_VALUE = 0;
-      /**
-       * <code>DELETE = 1;</code>
-       */
-      public static final int DELETE_VALUE = 1;
-
-
-      public final int getNumber() {
-        if (this == UNRECOGNIZED) {
-          throw new java.lang.IllegalArgumentException(
-              "Can't get the number of an unknown enum value.");
-        }
-        return value;
-      }
-
-      /**
-       * @param value The numeric wire value of the corresponding enum entry.
-       * @return The enum associated with the given numeric wire value.
-       * @deprecated Use {@link #forNumber(int)} instead.
-       */
-      @java.lang.Deprecated
-      public static Operation valueOf(int value) {
-        return forNumber(value);
-      }
-
-      /**
-       * @param value The numeric wire value of the corresponding enum entry.
-       * @return The enum associated with the given numeric wire value.
-       */
-      public static Operation forNumber(int value) {
-        switch (value) {
-          case 0: return PUT;
-          case 1: return DELETE;
-          default: return null;
-        }
-      }
-
-      public static com.google.protobuf.Internal.EnumLiteMap<Operation>
-          internalGetValueMap() {
-        return internalValueMap;
-      }
-      private static final com.google.protobuf.Internal.EnumLiteMap<
-          Operation> internalValueMap =
-            new com.google.protobuf.Internal.EnumLiteMap<Operation>() {
-              public Operation findValueByNumber(int number) {
-                return Operation.forNumber(number);
-              }
-            };
-
-      public final com.google.protobuf.Descriptors.EnumValueDescriptor
-          getValueDescriptor() {
-        if (this == UNRECOGNIZED) {
-          throw new java.lang.IllegalStateException(
-              "Can't get the descriptor of an unrecognized enum value.");
-        }
-        return getDescriptor().getValues().get(ordinal());
-      }
-      public final com.google.protobuf.Descriptors.EnumDescriptor
-          getDescriptorForType() {
-        return getDescriptor();
-      }
-      public static final com.google.protobuf.Descriptors.EnumDescriptor
-          getDescriptor() {
-        return dev.bytekv.proto.LogEntryOuterClass.LogEntry.getDescriptor().getEnumTypes().get(0);
-      }
-
-      private static final Operation[] VALUES = values();
-
-      public static Operation valueOf(
-          com.google.protobuf.Descriptors.EnumValueDescriptor desc) {
-        if (desc.getType() != getDescriptor()) {
-          throw new java.lang.IllegalArgumentException(
-            "EnumValueDescriptor is not for this type.");
-        }
-        if (desc.getIndex() == -1) {
-          return UNRECOGNIZED;
-        }
-        return VALUES[desc.getIndex()];
-      }
-
-      private final int value;
-
-      private Operation(int value) {
-        this.value = value;
-      }
-
-      // @@protoc_insertion_point(enum_scope:dev.bytekv.proto.LogEntry.Operation)
-    }
-
-    public static final int TIMESTAMP_FIELD_NUMBER = 1;
-    private int timestamp_ = 0;
-    /**
-     * <code>uint32 timestamp = 1;</code>
-     * @return The timestamp.
-     */
-    @java.lang.Override
-    public int getTimestamp() {
-      return timestamp_;
-    }
-
-    public static final int OP_FIELD_NUMBER = 2;
-    private int op_ = 0;
-    /**
-     * <code>.dev.bytekv.proto.LogEntry.Operation op = 2;</code>
-     * @return The enum numeric value on the wire for op.
-     */
-    @java.lang.Override public int getOpValue() {
-      return op_;
-    }
-    /**
-     * <code>.dev.bytekv.proto.LogEntry.Operation op = 2;</code>
-     * @return The op.
-     */
-    @java.lang.Override public dev.bytekv.proto.LogEntryOuterClass.LogEntry.Operation getOp() {
-      dev.bytekv.proto.LogEntryOuterClass.LogEntry.Operation result = dev.bytekv.proto.LogEntryOuterClass.LogEntry.Operation.forNumber(op_);
-      return result == null ? dev.bytekv.proto.LogEntryOuterClass.LogEntry.Operation.UNRECOGNIZED : result;
-    }
-
-    public static final int KEY_FIELD_NUMBER = 3;
-    @SuppressWarnings("serial")
-    private volatile java.lang.Object key_ = "";
-    /**
-     * <code>string key = 3;</code>
-     * @return The key.
-     */
-    @java.lang.Override
-    public java.lang.String getKey() {
-      java.lang.Object ref = key_;
-      if (ref instanceof java.lang.String) {
-        return (java.lang.String) ref;
-      } else {
-        com.google.protobuf.ByteString bs = 
-            (com.google.protobuf.ByteString) ref;
-        java.lang.String s = bs.toStringUtf8();
-        key_ = s;
-        return s;
-      }
-    }
-    /**
-     * <code>string key = 3;</code>
-     * @return The bytes for key.
-     */
-    @java.lang.Override
-    public com.google.protobuf.ByteString
-        getKeyBytes() {
-      java.lang.Object ref = key_;
-      if (ref instanceof java.lang.String) {
-        com.google.protobuf.ByteString b = 
-            com.google.protobuf.ByteString.copyFromUtf8(
-                (java.lang.String) ref);
-        key_ = b;
-        return b;
-      } else {
-        return (com.google.protobuf.ByteString) ref;
-      }
-    }
-
-    public static final int VALUE_FIELD_NUMBER = 4;
-    @SuppressWarnings("serial")
-    private volatile java.lang.Object value_ = "";
-    /**
-     * <code>string value = 4;</code>
-     * @return The value.
-     */
-    @java.lang.Override
-    public java.lang.String getValue() {
-      java.lang.Object ref = value_;
-      if (ref instanceof java.lang.String) {
-        return (java.lang.String) ref;
-      } else {
-        com.google.protobuf.ByteString bs = 
-            (com.google.protobuf.ByteString) ref;
-        java.lang.String s = bs.toStringUtf8();
-        value_ = s;
-        return s;
-      }
-    }
-    /**
-     * <code>string value = 4;</code>
-     * @return The bytes for value.
-     */
-    @java.lang.Override
-    public com.google.protobuf.ByteString
-        getValueBytes() {
-      java.lang.Object ref = value_;
-      if (ref instanceof java.lang.String) {
-        com.google.protobuf.ByteString b = 
-            com.google.protobuf.ByteString.copyFromUtf8(
-                (java.lang.String) ref);
-        value_ = b;
-        return b;
-      } else {
-        return (com.google.protobuf.ByteString) ref;
-      }
-    }
-
-    private byte memoizedIsInitialized = -1;
-    @java.lang.Override
-    public final boolean isInitialized() {
-      byte isInitialized = memoizedIsInitialized;
-      if (isInitialized == 1) return true;
-      if (isInitialized == 0) return false;
-
-      memoizedIsInitialized = 1;
-      return true;
-    }
-
-    @java.lang.Override
-    public void writeTo(com.google.protobuf.CodedOutputStream output)
-                        throws java.io.IOException {
-      if (timestamp_ != 0) {
-        output.writeUInt32(1, timestamp_);
-      }
-      if (op_ != dev.bytekv.proto.LogEntryOuterClass.LogEntry.Operation.PUT.getNumber()) {
-        output.writeEnum(2, op_);
-      }
-      if (!com.google.protobuf.GeneratedMessage.isStringEmpty(key_)) {
-        com.google.protobuf.GeneratedMessage.writeString(output, 3, key_);
-      }
-      if (!com.google.protobuf.GeneratedMessage.isStringEmpty(value_)) {
-        com.google.protobuf.GeneratedMessage.writeString(output, 4, value_);
-      }
-      getUnknownFields().writeTo(output);
-    }
-
-    @java.lang.Override
-    public int getSerializedSize() {
-      int size = memoizedSize;
-      if (size != -1) return size;
-
-      size = 0;
-      if (timestamp_ != 0) {
-        size += com.google.protobuf.CodedOutputStream
-          .computeUInt32Size(1, timestamp_);
-      }
-      if (op_ != dev.bytekv.proto.LogEntryOuterClass.LogEntry.Operation.PUT.getNumber()) {
-        size += com.google.protobuf.CodedOutputStream
-          .computeEnumSize(2, op_);
-      }
-      if (!com.google.protobuf.GeneratedMessage.isStringEmpty(key_)) {
-        size += com.google.protobuf.GeneratedMessage.computeStringSize(3, key_);
-      }
-      if (!com.google.protobuf.GeneratedMessage.isStringEmpty(value_)) {
-        size += com.google.protobuf.GeneratedMessage.computeStringSize(4, value_);
-      }
-      size += getUnknownFields().getSerializedSize();
-      memoizedSize = size;
-      return size;
-    }
-
-    @java.lang.Override
-    public boolean equals(final java.lang.Object obj) {
-      if (obj == this) {
-       return true;
-      }
-      if (!(obj instanceof dev.bytekv.proto.LogEntryOuterClass.LogEntry)) {
-        return super.equals(obj);
-      }
-      dev.bytekv.proto.LogEntryOuterClass.LogEntry other = (dev.bytekv.proto.LogEntryOuterClass.LogEntry) obj;
-
-      if (getTimestamp()
-          != other.getTimestamp()) return false;
-      if (op_ != other.op_) return false;
-      if (!getKey()
-          .equals(other.getKey())) return false;
-      if (!getValue()
-          .equals(other.getValue())) return false;
-      if (!getUnknownFields().equals(other.getUnknownFields())) return false;
-      return true;
-    }
-
-    @java.lang.Override
-    public int hashCode() {
-      if (memoizedHashCode != 0) {
-        return memoizedHashCode;
-      }
-      int hash = 41;
-      hash = (19 * hash) + getDescriptor().hashCode();
-      hash = (37 * hash) + TIMESTAMP_FIELD_NUMBER;
-      hash = (53 * hash) + getTimestamp();
-      hash = (37 * hash) + OP_FIELD_NUMBER;
-      hash = (53 * hash) + op_;
-      hash = (37 * hash) + KEY_FIELD_NUMBER;
-      hash = (53 * hash) + getKey().hashCode();
-      hash = (37 * hash) + VALUE_FIELD_NUMBER;
-      hash = (53 * hash) + getValue().hashCode();
-      hash = (29 * hash) + getUnknownFields().hashCode();
-      memoizedHashCode = hash;
-      return hash;
-    }
-
-    public static dev.bytekv.proto.LogEntryOuterClass.LogEntry parseFrom(
-        java.nio.ByteBuffer data)
-        throws com.google.protobuf.InvalidProtocolBufferException {
-      return PARSER.parseFrom(data);
-    }
-    public static dev.bytekv.proto.LogEntryOuterClass.LogEntry parseFrom(
-        java.nio.ByteBuffer data,
-        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-        throws com.google.protobuf.InvalidProtocolBufferException {
-      return PARSER.parseFrom(data, extensionRegistry);
-    }
-    public static dev.bytekv.proto.LogEntryOuterClass.LogEntry parseFrom(
-        com.google.protobuf.ByteString data)
-        throws com.google.protobuf.InvalidProtocolBufferException {
-      return PARSER.parseFrom(data);
-    }
-    public static dev.bytekv.proto.LogEntryOuterClass.LogEntry parseFrom(
-        com.google.protobuf.ByteString data,
-        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-        throws com.google.protobuf.InvalidProtocolBufferException {
-      return PARSER.parseFrom(data, extensionRegistry);
-    }
-    public static dev.bytekv.proto.LogEntryOuterClass.LogEntry parseFrom(byte[] data)
-        throws com.google.protobuf.InvalidProtocolBufferException {
-      return PARSER.parseFrom(data);
-    }
-    public static dev.bytekv.proto.LogEntryOuterClass.LogEntry parseFrom(
-        byte[] data,
-        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-        throws com.google.protobuf.InvalidProtocolBufferException {
-      return PARSER.parseFrom(data, extensionRegistry);
-    }
-    public static dev.bytekv.proto.LogEntryOuterClass.LogEntry parseFrom(java.io.InputStream input)
-        throws java.io.IOException {
-      return com.google.protobuf.GeneratedMessage
-          .parseWithIOException(PARSER, input);
-    }
-    public static dev.bytekv.proto.LogEntryOuterClass.LogEntry parseFrom(
-        java.io.InputStream input,
-        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-        throws java.io.IOException {
-      return com.google.protobuf.GeneratedMessage
-          .parseWithIOException(PARSER, input, extensionRegistry);
-    }
-
-    public static dev.bytekv.proto.LogEntryOuterClass.LogEntry parseDelimitedFrom(java.io.InputStream input)
-        throws java.io.IOException {
-      return com.google.protobuf.GeneratedMessage
-          .parseDelimitedWithIOException(PARSER, input);
-    }
-
-    public static dev.bytekv.proto.LogEntryOuterClass.LogEntry parseDelimitedFrom(
-        java.io.InputStream input,
-        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-        throws java.io.IOException {
-      return com.google.protobuf.GeneratedMessage
-          .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
-    }
-    public static dev.bytekv.proto.LogEntryOuterClass.LogEntry parseFrom(
-        com.google.protobuf.CodedInputStream input)
-        throws java.io.IOException {
-      return com.google.protobuf.GeneratedMessage
-          .parseWithIOException(PARSER, input);
-    }
-    public static dev.bytekv.proto.LogEntryOuterClass.LogEntry parseFrom(
-        com.google.protobuf.CodedInputStream input,
-        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-        throws java.io.IOException {
-      return com.google.protobuf.GeneratedMessage
-          .parseWithIOException(PARSER, input, extensionRegistry);
-    }
-
-    @java.lang.Override
-    public Builder newBuilderForType() { return newBuilder(); }
-    public static Builder newBuilder() {
-      return DEFAULT_INSTANCE.toBuilder();
-    }
-    public static Builder newBuilder(dev.bytekv.proto.LogEntryOuterClass.LogEntry prototype) {
-      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
-    }
-    @java.lang.Override
-    public Builder toBuilder() {
-      return this == DEFAULT_INSTANCE
-          ? new Builder() : new Builder().mergeFrom(this);
-    }
-
-    @java.lang.Override
-    protected Builder newBuilderForType(
-        com.google.protobuf.GeneratedMessage.BuilderParent parent) {
-      Builder builder = new Builder(parent);
-      return builder;
-    }
-    /**
-     * Protobuf type {@code dev.bytekv.proto.LogEntry}
-     */
-    public static final class Builder extends
-        com.google.protobuf.GeneratedMessage.Builder<Builder> implements
-        // @@protoc_insertion_point(builder_implements:dev.bytekv.proto.LogEntry)
-        dev.bytekv.proto.LogEntryOuterClass.LogEntryOrBuilder {
-      public static final com.google.protobuf.Descriptors.Descriptor
-          getDescriptor() {
-        return dev.bytekv.proto.LogEntryOuterClass.internal_static_dev_bytekv_proto_LogEntry_descriptor;
-      }
-
-      @java.lang.Override
-      protected com.google.protobuf.GeneratedMessage.FieldAccessorTable
-          internalGetFieldAccessorTable() {
-        return dev.bytekv.proto.LogEntryOuterClass.internal_static_dev_bytekv_proto_LogEntry_fieldAccessorTable
-            .ensureFieldAccessorsInitialized(
-                dev.bytekv.proto.LogEntryOuterClass.LogEntry.class, dev.bytekv.proto.LogEntryOuterClass.LogEntry.Builder.class);
-      }
-
-      // Construct using dev.bytekv.proto.LogEntryOuterClass.LogEntry.newBuilder()
-      private Builder() {
-
-      }
-
-      private Builder(
-          com.google.protobuf.GeneratedMessage.BuilderParent parent) {
-        super(parent);
-
-      }
-      @java.lang.Override
-      public Builder clear() {
-        super.clear();
-        bitField0_ = 0;
-        timestamp_ = 0;
-        op_ = 0;
-        key_ = "";
-        value_ = "";
-        return this;
-      }
-
-      @java.lang.Override
-      public com.google.protobuf.Descriptors.Descriptor
-          getDescriptorForType() {
-        return dev.bytekv.proto.LogEntryOuterClass.internal_static_dev_bytekv_proto_LogEntry_descriptor;
-      }
-
-      @java.lang.Override
-      public dev.bytekv.proto.LogEntryOuterClass.LogEntry getDefaultInstanceForType() {
-        return dev.bytekv.proto.LogEntryOuterClass.LogEntry.getDefaultInstance();
-      }
-
-      @java.lang.Override
-      public dev.bytekv.proto.LogEntryOuterClass.LogEntry build() {
-        dev.bytekv.proto.LogEntryOuterClass.LogEntry result = buildPartial();
-        if (!result.isInitialized()) {
-          throw newUninitializedMessageException(result);
-        }
-        return result;
-      }
-
-      @java.lang.Override
-      public dev.bytekv.proto.LogEntryOuterClass.LogEntry buildPartial() {
-        dev.bytekv.proto.LogEntryOuterClass.LogEntry result = new dev.bytekv.proto.LogEntryOuterClass.LogEntry(this);
-        if (bitField0_ != 0) { buildPartial0(result); }
-        onBuilt();
-        return result;
-      }
-
-      private void buildPartial0(dev.bytekv.proto.LogEntryOuterClass.LogEntry result) {
-        int from_bitField0_ = bitField0_;
-        if (((from_bitField0_ & 0x00000001) != 0)) {
-          result.timestamp_ = timestamp_;
-        }
-        if (((from_bitField0_ & 0x00000002) != 0)) {
-          result.op_ = op_;
-        }
-        if (((from_bitField0_ & 0x00000004) != 0)) {
-          result.key_ = key_;
-        }
-        if (((from_bitField0_ & 0x00000008) != 0)) {
-          result.value_ = value_;
-        }
-      }
-
-      @java.lang.Override
-      public Builder mergeFrom(com.google.protobuf.Message other) {
-        if (other instanceof dev.bytekv.proto.LogEntryOuterClass.LogEntry) {
-          return mergeFrom((dev.bytekv.proto.LogEntryOuterClass.LogEntry)other);
-        } else {
-          super.mergeFrom(other);
-          return this;
-        }
-      }
-
-      public Builder mergeFrom(dev.bytekv.proto.LogEntryOuterClass.LogEntry other) {
-        if (other == dev.bytekv.proto.LogEntryOuterClass.LogEntry.getDefaultInstance()) return this;
-        if (other.getTimestamp() != 0) {
-          setTimestamp(other.getTimestamp());
-        }
-        if (other.op_ != 0) {
-          setOpValue(other.getOpValue());
-        }
-        if (!other.getKey().isEmpty()) {
-          key_ = other.key_;
-          bitField0_ |= 0x00000004;
-          onChanged();
-        }
-        if (!other.getValue().isEmpty()) {
-          value_ = other.value_;
-          bitField0_ |= 0x00000008;
-          onChanged();
-        }
-        this.mergeUnknownFields(other.getUnknownFields());
-        onChanged();
-        return this;
-      }
-
-      @java.lang.Override
-      public final boolean isInitialized() {
-        return true;
-      }
-
-      @java.lang.Override
-      public Builder mergeFrom(
-          com.google.protobuf.CodedInputStream input,
-          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-          throws java.io.IOException {
-        if (extensionRegistry == null) {
-          throw new java.lang.NullPointerException();
-        }
-        try {
-          boolean done = false;
-          while (!done) {
-            int tag = input.readTag();
-            switch (tag) {
-              case 0:
-                done = true;
-                break;
-              case 8: {
-                timestamp_ = input.readUInt32();
-                bitField0_ |= 0x00000001;
-                break;
-              } // case 8
-              case 16: {
-                op_ = input.readEnum();
-                bitField0_ |= 0x00000002;
-                break;
-              } // case 16
-              case 26: {
-                key_ = input.readStringRequireUtf8();
-                bitField0_ |= 0x00000004;
-                break;
-              } // case 26
-              case 34: {
-                value_ = input.readStringRequireUtf8();
-                bitField0_ |= 0x00000008;
-                break;
-              } // case 34
-              default: {
-                if (!super.parseUnknownField(input, extensionRegistry, tag)) {
-                  done = true; // was an endgroup tag
-                }
-                break;
-              } // default:
-            } // switch (tag)
-          } // while (!done)
-        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
-          throw e.unwrapIOException();
-        } finally {
-          onChanged();
-        } // finally
-        return this;
-      }
-      private int bitField0_;
-
-      private int timestamp_ ;
-      /**
-       * <code>uint32 timestamp = 1;</code>
-       * @return The timestamp.
-       */
-      @java.lang.Override
-      public int getTimestamp() {
-        return timestamp_;
-      }
-      /**
-       * <code>uint32 timestamp = 1;</code>
-       * @param value The timestamp to set.
-       * @return This builder for chaining.
-       */
-      public Builder setTimestamp(int value) {
-
-        timestamp_ = value;
-        bitField0_ |= 0x00000001;
-        onChanged();
-        return this;
-      }
-      /**
-       * <code>uint32 timestamp = 1;</code>
-       * @return This builder for chaining.
-       */
-      public Builder clearTimestamp() {
-        bitField0_ = (bitField0_ & ~0x00000001);
-        timestamp_ = 0;
-        onChanged();
-        return this;
-      }
-
-      private int op_ = 0;
-      /**
-       * <code>.dev.bytekv.proto.LogEntry.Operation op = 2;</code>
-       * @return The enum numeric value on the wire for op.
-       */
-      @java.lang.Override public int getOpValue() {
-        return op_;
-      }
-      /**
-       * <code>.dev.bytekv.proto.LogEntry.Operation op = 2;</code>
-       * @param value The enum numeric value on the wire for op to set.
-       * @return This builder for chaining.
-       */
-      public Builder setOpValue(int value) {
-        op_ = value;
-        bitField0_ |= 0x00000002;
-        onChanged();
-        return this;
-      }
-      /**
-       * <code>.dev.bytekv.proto.LogEntry.Operation op = 2;</code>
-       * @return The op.
-       */
-      @java.lang.Override
-      public dev.bytekv.proto.LogEntryOuterClass.LogEntry.Operation getOp() {
-        dev.bytekv.proto.LogEntryOuterClass.LogEntry.Operation result = dev.bytekv.proto.LogEntryOuterClass.LogEntry.Operation.forNumber(op_);
-        return result == null ? dev.bytekv.proto.LogEntryOuterClass.LogEntry.Operation.UNRECOGNIZED : result;
-      }
-      /**
-       * <code>.dev.bytekv.proto.LogEntry.Operation op = 2;</code>
-       * @param value The op to set.
-       * @return This builder for chaining.
-       */
-      public Builder setOp(dev.bytekv.proto.LogEntryOuterClass.LogEntry.Operation value) {
-        if (value == null) {
-          throw new NullPointerException();
-        }
-        bitField0_ |= 0x00000002;
-        op_ = value.getNumber();
-        onChanged();
-        return this;
-      }
-      /**
-       * <code>.dev.bytekv.proto.LogEntry.Operation op = 2;</code>
-       * @return This builder for chaining.
-       */
-      public Builder clearOp() {
-        bitField0_ = (bitField0_ & ~0x00000002);
-        op_ = 0;
-        onChanged();
-        return this;
-      }
-
-      private java.lang.Object key_ = "";
-      /**
-       * <code>string key = 3;</code>
-       * @return The key.
-       */
-      public java.lang.String getKey() {
-        java.lang.Object ref = key_;
-        if (!(ref instanceof java.lang.String)) {
-          com.google.protobuf.ByteString bs =
-              (com.google.protobuf.ByteString) ref;
-          java.lang.String s = bs.toStringUtf8();
-          key_ = s;
-          return s;
-        } else {
-          return (java.lang.String) ref;
-        }
-      }
-      /**
-       * <code>string key = 3;</code>
-       * @return The bytes for key.
-       */
-      public com.google.protobuf.ByteString
-          getKeyBytes() {
-        java.lang.Object ref = key_;
-        if (ref instanceof String) {
-          com.google.protobuf.ByteString b = 
-              com.google.protobuf.ByteString.copyFromUtf8(
-                  (java.lang.String) ref);
-          key_ = b;
-          return b;
-        } else {
-          return (com.google.protobuf.ByteString) ref;
-        }
-      }
-      /**
-       * <code>string key = 3;</code>
-       * @param value The key to set.
-       * @return This builder for chaining.
-       */
-      public Builder setKey(
-          java.lang.String value) {
-        if (value == null) { throw new NullPointerException(); }
-        key_ = value;
-        bitField0_ |= 0x00000004;
-        onChanged();
-        return this;
-      }
-      /**
-       * <code>string key = 3;</code>
-       * @return This builder for chaining.
-       */
-      public Builder clearKey() {
-        key_ = getDefaultInstance().getKey();
-        bitField0_ = (bitField0_ & ~0x00000004);
-        onChanged();
-        return this;
-      }
-      /**
-       * <code>string key = 3;</code>
-       * @param value The bytes for key to set.
-       * @return This builder for chaining.
-       */
-      public Builder setKeyBytes(
-          com.google.protobuf.ByteString value) {
-        if (value == null) { throw new NullPointerException(); }
-        checkByteStringIsUtf8(value);
-        key_ = value;
-        bitField0_ |= 0x00000004;
-        onChanged();
-        return this;
-      }
-
-      private java.lang.Object value_ = "";
-      /**
-       * <code>string value = 4;</code>
-       * @return The value.
-       */
-      public java.lang.String getValue() {
-        java.lang.Object ref = value_;
-        if (!(ref instanceof java.lang.String)) {
-          com.google.protobuf.ByteString bs =
-              (com.google.protobuf.ByteString) ref;
-          java.lang.String s = bs.toStringUtf8();
-          value_ = s;
-          return s;
-        } else {
-          return (java.lang.String) ref;
-        }
-      }
-      /**
-       * <code>string value = 4;</code>
-       * @return The bytes for value.
-       */
-      public com.google.protobuf.ByteString
-          getValueBytes() {
-        java.lang.Object ref = value_;
-        if (ref instanceof String) {
-          com.google.protobuf.ByteString b = 
-              com.google.protobuf.ByteString.copyFromUtf8(
-                  (java.lang.String) ref);
-          value_ = b;
-          return b;
-        } else {
-          return (com.google.protobuf.ByteString) ref;
-        }
-      }
-      /**
-       * <code>string value = 4;</code>
-       * @param value The value to set.
-       * @return This builder for chaining.
-       */
-      public Builder setValue(
-          java.lang.String value) {
-        if (value == null) { throw new NullPointerException(); }
-        value_ = value;
-        bitField0_ |= 0x00000008;
-        onChanged();
-        return this;
-      }
-      /**
-       * <code>string value = 4;</code>
-       * @return This builder for chaining.
-       */
-      public Builder clearValue() {
-        value_ = getDefaultInstance().getValue();
-        bitField0_ = (bitField0_ & ~0x00000008);
-        onChanged();
-        return this;
-      }
-      /**
-       * <code>string value = 4;</code>
-       * @param value The bytes for value to set.
-       * @return This builder for chaining.
-       */
-      public Builder setValueBytes(
-          com.google.protobuf.ByteString value) {
-        if (value == null) { throw new NullPointerException(); }
-        checkByteStringIsUtf8(value);
-        value_ = value;
-        bitField0_ |= 0x00000008;
-        onChanged();
-        return this;
-      }
-
-      // @@protoc_insertion_point(builder_scope:dev.bytekv.proto.LogEntry)
-    }
-
-    // @@protoc_insertion_point(class_scope:dev.bytekv.proto.LogEntry)
-    private static final dev.bytekv.proto.LogEntryOuterClass.LogEntry DEFAULT_INSTANCE;
-    static {
-      DEFAULT_INSTANCE = new dev.bytekv.proto.LogEntryOuterClass.LogEntry();
-    }
-
-    public static dev.bytekv.proto.LogEntryOuterClass.LogEntry getDefaultInstance() {
-      return DEFAULT_INSTANCE;
-    }
-
-    private static final com.google.protobuf.Parser<LogEntry>
-        PARSER = new com.google.protobuf.AbstractParser<LogEntry>() {
-      @java.lang.Override
-      public LogEntry parsePartialFrom(
-          com.google.protobuf.CodedInputStream input,
-          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
-          throws com.google.protobuf.InvalidProtocolBufferException {
-        Builder builder = newBuilder();
-        try {
-          builder.mergeFrom(input, extensionRegistry);
-        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
-          throw e.setUnfinishedMessage(builder.buildPartial());
-        } catch (com.google.protobuf.UninitializedMessageException e) {
-          throw e.asInvalidProtocolBufferException().setUnfinishedMessage(builder.buildPartial());
-        } catch (java.io.IOException e) {
-          throw new com.google.protobuf.InvalidProtocolBufferException(e)
-              .setUnfinishedMessage(builder.buildPartial());
-        }
-        return builder.buildPartial();
-      }
-    };
-
-    public static com.google.protobuf.Parser<LogEntry> parser() {
-      return PARSER;
-    }
-
-    @java.lang.Override
-    public com.google.protobuf.Parser<LogEntry> getParserForType() {
-      return PARSER;
-    }
-
-    @java.lang.Override
-    public dev.bytekv.proto.LogEntryOuterClass.LogEntry getDefaultInstanceForType() {
-      return DEFAULT_INSTANCE;
-    }
-
-  }
-
-  private static final com.google.protobuf.Descriptors.Descriptor
-    internal_static_dev_bytekv_proto_LogEntry_descriptor;
-  private static final 
-    com.google.protobuf.GeneratedMessage.FieldAccessorTable
-      internal_static_dev_bytekv_proto_LogEntry_fieldAccessorTable;
-
-  public static com.google.protobuf.Descriptors.FileDescriptor
-      getDescriptor() {
-    return descriptor;
-  }
-  private static  com.google.protobuf.Descriptors.FileDescriptor
-      descriptor;
-  static {
-    java.lang.String[] descriptorData = {
-      "\n\017log_entry.proto\022\020dev.bytekv.proto\"\215\001\n\010" +
-      "LogEntry\022\021\n\ttimestamp\030\001 \001(\r\0220\n\002op\030\002 \001(\0162" +
-      "$.dev.bytekv.proto.LogEntry.Operation\022\013\n" +
-      "\003key\030\003 \001(\t\022\r\n\005value\030\004 \001(\t\" \n\tOperation\022\007" +
-      "\n\003PUT\020\000\022\n\n\006DELETE\020\001B&\n\020dev.bytekv.protoB" +
-      "\022LogEntryOuterClassb\006proto3"
-    };
-    descriptor = com.google.protobuf.Descriptors.FileDescriptor
-      .internalBuildGeneratedFileFrom(descriptorData,
-        new com.google.protobuf.Descriptors.FileDescriptor[] {
-        });
-    internal_static_dev_bytekv_proto_LogEntry_descriptor =
-      getDescriptor().getMessageTypes().get(0);
-    internal_static_dev_bytekv_proto_LogEntry_fieldAccessorTable = new
-      com.google.protobuf.GeneratedMessage.FieldAccessorTable(
-        internal_static_dev_bytekv_proto_LogEntry_descriptor,
-        new java.lang.String[] { "Timestamp", "Op", "Key", "Value", });
-    descriptor.resolveAllFeaturesImmutable();
-  }
-
-  // @@protoc_insertion_point(outer_class_scope)
-}
@@ -0,0 +1,193 @@
+package dev.bytekv.core.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+    * ns/op of a filter probe, before and after the hashing rework. legacy* is the old filter (three hashes per key, one of them
+      SHA-256 through MessageDigest.getInstance, key encoded to UTF-8 three times), the others are BloomFilter and BlockedBloomFilter
+      fed with one BloomFilter.hash.
+
+    * Lookups are for keys that were never added, the case that matters: a negative lookup probes the filter of every table.
+      *Tables benchmarks check the same key against `tables` filters the way a get walks the levels, legacy hashes again for
+      every table, the new filters hash once.
+
+    * Run with ./gradlew jmh (arguments for JMH go in -PjmhArgs, e.g. -PjmhArgs="KeyFilterBenchmark.bloom").
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyFilterBenchmark {
+
+    private static final int KEYS = 100_000;
+    private static final int BITS_PER_KEY = 10;
+
+    @Param({"20"})
+    public int tables;
+
+    private String[] missing;
+    private int next;
+
+    private LegacyFilter[] legacy;
+    private KeyFilter[] bloom;
+    private KeyFilter[] blocked;
+
+    @Setup
+    public void setup() {
+        legacy = new LegacyFilter[tables];
+        bloom = new KeyFilter[tables];
+        blocked = new KeyFilter[tables];
+        for (int t = 0; t < tables; t++) {
+            legacy[t] = new LegacyFilter(KEYS * BITS_PER_KEY);
+            bloom[t] = KeyFilter.Type.BLOOM.create(KEYS, BITS_PER_KEY);
+            blocked[t] = KeyFilter.Type.BLOCKED_BLOOM.create(KEYS, BITS_PER_KEY);
+            for (int i = 0; i < KEYS; i++) {
+                String key = "user:" + t + ":" + i;
+                legacy[t].add(key);
+                byte[] k = key.getBytes(StandardCharsets.UTF_8);
+                long hash = BloomFilter.hash(ByteBuffer.wrap(k), 0, k.length);
+                bloom[t].add(hash);
+                blocked[t].add(hash);
+            }
+        }
+
+        missing = new String[4096];
+        for (int i = 0; i < missing.length; i++)
+            missing[i] = "absent:" + i * 7919;
+    }
+
+    private String nextKey() {
+        next = (next + 1) & (missing.length - 1);
+        return missing[next];
+    }
+
+    @Benchmark
+    public boolean legacy() {
+        return legacy[0].mightContain(nextKey());
+    }
+
+    @Benchmark
+    public boolean bloom() {
+        return bloom[0].mightContain(BloomFilter.hash(nextKey()));
+    }
+
+    @Benchmark
+    public boolean blockedBloom() {
+        return blocked[0].mightContain(BloomFilter.hash(nextKey()));
+    }
+
+    @Benchmark
+    public int legacyTables() {
+        String key = nextKey();
+        int hits = 0;
+        for (LegacyFilter filter : legacy) {
+            if (filter.mightContain(key))
+                hits++;
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int bloomTables() {
+        return probeAll(bloom, new LookupKey(nextKey()));
+    }
+
+    @Benchmark
+    public int blockedBloomTables() {
+        return probeAll(blocked, new LookupKey(nextKey()));
+    }
+
+    private static int probeAll(KeyFilter[] filters, LookupKey lookup) {
+        int hits = 0;
+        for (KeyFilter filter : filters) {
+            if (filter.mightContain(lookup.hash()))
+                hits++;
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public long hashString() {
+        return BloomFilter.hash(nextKey());
+    }
+
+    // the filter as it was before the rework, kept here only as the baseline.
+    private static final class LegacyFilter {
+        private final BitSet bitset;
+        private final int size;
+
+        LegacyFilter(int size) {
+            this.size = size;
+            this.bitset = new BitSet(size);
+        }
+
+        void add(String key) {
+            for (int hash : getHashes(key))
+                bitset.set(Math.abs(hash % size), true);
+        }
+
+        boolean mightContain(String key) {
+            for (int hash : getHashes(key)) {
+                if (!bitset.get(Math.abs(hash % size)))
+                    return false;
+            }
+            return true;
+        }
+
+        private int[] getHashes(String key) {
+            return new int[]{sha256Hash(key), murmurHash3(key), fnv1aHash(key)};
+        }
+
+        private int sha256Hash(String key) {
+            try {
+                MessageDigest md = MessageDigest.getInstance("SHA-256");
+                byte[] hash = md.digest(key.getBytes(StandardCharsets.UTF_8));
+                int result = 0;
+                for (int i = 0; i < 4; i++)
+                    result = (result << 8) | (hash[i] & 0xff);
+                return result;
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("SHA-256 not available", e);
+            }
+        }
+
+        private int murmurHash3(String key) {
+            int hash = 0x9747b28c;
+            for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b;
+                hash *= 0x5bd1e995;
+                hash ^= hash >>> 15;
+            }
+            return hash;
+        }
+
+        private int fnv1aHash(String key) {
+            int hash = 0x811c9dc5;
+            for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b;
+                hash *= 0x01000193;
+            }
+            return hash;
+        }
+    }
+}
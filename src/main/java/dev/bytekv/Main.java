@@ -21,7 +21,7 @@ public class Main {
 
     public static void main(String[] args) throws Exception {
 
-        KeyValue kv = new KeyValue("logs", 2500);
+        KeyValue kv = new KeyValue("logs", 0);
 
         Javalin app = Javalin.create().start(8080);
         log.info("Key value store server running on port 8080 ://");
@@ -1,13 +1,10 @@
 package dev.bytekv.core;
 
 import java.io.IOException;
-import java.nio.file.Paths;
+import java.io.InterruptedIOException;
 import java.util.concurrent.*;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.concurrent.locks.Lock;
 
 import dev.bytekv.log.*;
-import dev.bytekv.ttl.TTLManager;
 import dev.bytekv.core.storage.*;
 
 public class Coordinator implements KVStore{
@@ -16,61 +13,53 @@ public class Coordinator implements KVStore{
     private final int blockingQueueSize = 100;
     private final int threadPoolSize = 30;
 
-    private final ReentrantReadWriteLock rw = new ReentrantReadWriteLock(); 
-    private final Lock readerLock = rw.readLock();
-    private final Lock writerLock = rw.writeLock();
+    /*
+        * No store wide lock. Writers go through the memtable only, MemTable logs each write to its WAL segment itself and hands it
+          a sequence number, keeping the newest one per key, the cache is updated with that same sequence so it settles on the
+          same value. Reads never lock anything on the way to memtable or SSTables (the LRU cache only locks the shard of the key).
+    */
 
     private LRUCache cache;
     private WALWriter writer;
     private MemTable memTable;
     private SSTManager sstManager;
-    private TTLManager ttlManager;
     private LogRestorer logRestorer;
 
-    Thread ttlManagerThread;
-
-    CountDownLatch shutdownLatch = new CountDownLatch(3);
-    private ConcurrentHashMap<String, StoreEntry> ttlEntries;
+    // counted down by the WAL writer once it stopped.
+    CountDownLatch shutdownLatch = new CountDownLatch(1);
 
     public Coordinator(String logPath, int memTableLimit) throws IOException{
+        this(logPath, memTableLimit, new StorageOptions());
+    }
 
-       String logFilePath = Paths.get(logPath, "master.log").toString();
+    public Coordinator(String logPath, int memTableLimit, StorageOptions storageOptions) throws IOException{
 
-      try{ sstManager = new SSTManager(); }
+      try{ sstManager = new SSTManager(storageOptions); }
 
       catch(IOException e){
         throw new IOException(e);
 
       }
 
-      try { writer = new WALWriter(logFilePath, shutdownLatch); }
+      try { writer = new WALWriter(logPath, shutdownLatch); }
       catch (IOException e) {
            throw new RuntimeException("Failed to initialize WAL", e); }
 
+       // memTableLimit caps entries per memtable on top of StorageOptions.writeBufferSize, 0 flushes by size only.
        memTable = new MemTable(this.sstManager, memTableLimit, writer);
-       ttlEntries = new ConcurrentHashMap<>();
 
        cache = new LRUCache(2000);
 
        logRestorer = new LogRestorer(logPath, memTable);
 
     /*
-        * Instead of scanning for expired TTL entries in memory. I'm using something called as lazy eviction.
-        - Every 10 seconds, I'm randomly sampling 20 of the entries from all TLL entries. if atleast 75% of entries are
-        expired from the sample. Then I'm triggering a full scan to evict any expired entries.
+        * TTL entries are stored like any other write, with their expiry kept next to the value (in memtable, WAL and SSTables). Reads skip expired ones and compaction's
+          TtlCompactionFilter (on by default in StorageOptions) drops them from disk, so nothing has to scan for them.
 
         * Tradeoffs:
-        - Expired entries may live longer than their TTL.
-        - Strict TTL guarantees are not enforced but data eventually gets consistent.
+        - Expired entries take disk space until compaction reaches their table.
     */
 
-        ttlManager = new TTLManager(ttlEntries,shutdownLatch);
-        ttlManagerThread = new Thread(ttlManager);
-        ttlManagerThread.setName("TTLManager thread");
-        ttlManagerThread.setDaemon(true);
-        ttlManagerThread.start();
-
-       
         BlockingQueue<Runnable> taskQueue = new ArrayBlockingQueue<>(blockingQueueSize);
 
         /*
@@ -100,83 +89,100 @@ public class Coordinator implements KVStore{
         );
 
 
-        //logRestorer.replayLogs();
+        // segments left by the last run hold writes that never made it to an SSTable.
+        logRestorer.replayLogs();
     }
 
     
     @Override
     public Future<String> get(String key){
             return threadPool.submit(() -> {
-                try{
-                    readerLock.lock();
-                    String ans = cache.get(key);
-                    if(ans != null)
-                        return ans;
-                    return memTable.get(key);
-
-                }finally{
-                    readerLock.unlock();
-                }
+                String ans = cache.get(key);
+                if(ans != null)
+                    return ans;
+                return memTable.get(key);
         });
     }
 
+    /*
+        * Write backpressure (WriteController) is applied here, on the caller's thread, before a write is handed to the pool. A
+          stalled write then holds no pool thread, so gets keep being served while writes wait; stalling inside the pool used to park
+          all of its threads behind the stall, reads included. Returns false if the caller got interrupted while stalled.
+
+        * Tradeoffs:
+        - put/delete can now block the caller before they return their Future (they already could when the task queue is full).
+    */
+    private boolean throttle(long bytes) {
+        try {
+            sstManager.getWriteController().throttle(bytes);
+            return true;
+        } catch (InterruptedIOException e) {
+            return false;
+        }
+    }
+
+    private static long size(String s) {
+        return s == null ? 0 : s.length();
+    }
+
     @Override
      public Future<String> put(String key ,String value){
-        return threadPool.submit(() -> {
-            
-            LogEntry entry = new LogEntry(LogEntry.Operation.PUT, key, value);
-            writer.writeToLog(entry.toProto());
+        // stalls here, before the WAL, so a stalled write holds nothing anyone else waits on.
+        if (!throttle(size(key) + size(value)))
+            return CompletableFuture.completedFuture("ERROR: interrupted while writes were stalled");
 
+        return threadPool.submit(() -> {
             try{
-                writerLock.lock();
-                cache.put(key, value);
-                memTable.put(key,value);
+                // memtable first: a cached value is never newer than what the memtable returns.
+                long sequence = memTable.put(key,value);
+                cache.put(key, value, sequence);
                 return "OK!";
 
             }catch(IOException e){
                 return "ERROR: log file not initialized properly";
-            }finally{
-                writerLock.unlock();
             }
         });
     }
 
     @Override
     public Future<String> delete(String key) {
+        if (!throttle(size(key)))
+            return CompletableFuture.completedFuture("ERROR: interrupted while writes were stalled");
+
         return threadPool.submit(() -> {
             if(key == null)
                 return "ERROR: null key";
 
-            LogEntry logEntry = new LogEntry(LogEntry.Operation.DELETE, key, null);
-            writer.writeToLog(logEntry.toProto());
             try {
-                writerLock.lock();
-                memTable.delete(key);
-                cache.delete(key);
+                long sequence = memTable.delete(key);
+                cache.delete(key, sequence);
                 return "OK!";
             
             } catch (IOException error) {
                 return "ERROR: log file not initialized properly";
-            } finally {
-                writerLock.unlock();
             }
         });
     }
 
-     /*
-        * I'm expecting TTL entries to be short lived. So I'm not logging TTL entries and instead storing them in memory in a 
-          hashset.
-
-        * Tradeoffs:
-        - TTL entries are not persistent. So data can be lost when there is a crash of the database instance.
+    /*
+        * expiryTime is epoch millis. Goes through WAL and memtable like put, the expiry travels next to the value (never inside
+          it), so TTL entries survive crashes and flushes and any value can have one.
     */
-
     @Override
      public Future<String> put(String key ,String value, long expiryTime){
+       if (!throttle(size(key) + size(value)))
+           return CompletableFuture.completedFuture("ERROR: interrupted while writes were stalled");
+
        return threadPool.submit(() -> {
-            StoreEntry se = new StoreEntry(key , value, true, expiryTime);
-            ttlEntries.put(key ,se);
-            return "OK!";
+            try{
+                long sequence = memTable.put(key, value, expiryTime);
+                // cache has no notion of expiry, so TTL values are never cached.
+                cache.delete(key, sequence);
+                return "OK!";
+
+            }catch(IOException e){
+                return "ERROR: log file not initialized properly";
+            }
         });
     }
 
@@ -188,22 +194,7 @@ public class Coordinator implements KVStore{
         if(key == null)
             return "ERROR: null key";
 
-        readerLock.lock();
-        try{
-
-        if(!ttlEntries.containsKey(key))
-            return null;
-        StoreEntry obj = ttlEntries.get(key);
-
-        if(System.currentTimeMillis() > obj.expiryTime){
-            ttlEntries.remove(key);
-            return null;
-        }
-        return obj.value;
-
-        }finally{
-            readerLock.unlock();
-        }
+        return memTable.get(key);
 
         });
     }
@@ -220,18 +211,27 @@ public class Coordinator implements KVStore{
     
     public void shutDown() throws InterruptedException{
         try{
-        ttlManager.stopIt();
-        ttlManagerThread.interrupt();
-
-        writer.stopIt();
-        shutdownLatch.await();
-
+        // writes first, memtables next (flushing deletes their WAL segments), then compactions, the WAL writer last so it writes out all of that.
         threadPool.shutdown();
 
         if (!threadPool.awaitTermination(60, TimeUnit.SECONDS))
             threadPool.shutdownNow(); 
 
-        forceFlush();
+        try{ memTable.close(); }
+
+        catch(IOException e){
+            System.out.println("Closing memtable failed:" + e.getMessage());
+        }
+
+        // last flush is done, compactions can stop now.
+        sstManager.close();
+
+        try{ writer.shutDown(); }
+
+        catch(IOException e){
+            System.out.println("Closing WAL failed:" + e.getMessage());
+        }
+        shutdownLatch.await();
         System.out.println("Coordinator shutdown complete.");
         
         }catch(InterruptedException e){
@@ -3,6 +3,8 @@ package dev.bytekv.core;
 import java.io.IOException;
 import java.util.concurrent.ExecutionException;
 
+import dev.bytekv.core.storage.StorageOptions;
+
 public class KeyValue{
         
     Coordinator cood;
@@ -16,6 +18,13 @@ public class KeyValue{
         }
     } 
 
+    public KeyValue(String logPath, int memTableLimit, StorageOptions storageOptions) throws IOException{
+        try{ cood = new Coordinator(logPath, memTableLimit, storageOptions); }
+        catch(IOException e){
+            throw new IOException(e);
+        }
+    }
+
     public String put(String key , String value) throws InterruptedException, ExecutionException{
         if(key == null)
             return "ERROR: null key";
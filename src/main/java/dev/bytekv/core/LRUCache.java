@@ -2,74 +2,163 @@ package dev.bytekv.core;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.locks.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Simple thread-safe LRU cache using LinkedHashMap with read-write locking.
- * Evicts least recently used entry when capacity is exceeded.
+ * Thread-safe LRU cache, split into shards by hash of the key. Each shard is a small access ordered LinkedHashMap with its
+ * own lock and its own slice of the capacity, the same layout BlockCache uses. A get moves its entry in the LRU list, so it
+ * needs its shard exclusively, sharding keeps gets of different keys from all queuing on one lock.
+ *
+ * Writers reach the cache in no particular order, so put/delete with a sequence (from MemTable) only take effect if
+ * nothing newer for the key is cached; a delete leaves a marker carrying its sequence behind for that reason. Evicting an
+ * entry forgets its sequence, so a sequenced put of a key that isn't cached must also be newer than anything evicted from
+ * its shard.
+ *
+ * Tradeoffs:
+ * - LRU is per shard, a hot shard evicts while another one still has room.
  */
 public class LRUCache {
-    private final LinkedHashMap<String, String> map;
-    private final int capacity;
-
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
-    private final Lock readLock = lock.readLock();
-    private final Lock writeLock = lock.writeLock();
+    private final Shard[] shards;
 
     public LRUCache(int capacity) {
-        this.capacity = capacity;
-        this.map = new LinkedHashMap<>(16, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
-                return size() > LRUCache.this.capacity;
-            }
-        };
+        this(capacity, 16);
+    }
+
+    public LRUCache(int capacity, int shardCount) {
+        if (Integer.bitCount(shardCount) != 1)
+            throw new IllegalArgumentException("shardCount must be a power of two");
+
+        // small caches get fewer shards, every shard holds at least one entry.
+        while (shardCount > 1 && shardCount > capacity)
+            shardCount >>= 1;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++)
+            shards[i] = new Shard(Math.max(1, capacity / shardCount + (i < capacity % shardCount ? 1 : 0)));
     }
 
     public String get(String key) {
-        readLock.lock();
-        try {
-            return map.get(key);
-        } finally {
-            readLock.unlock();
-        }
+        return shardFor(key).get(key);
     }
 
     public void put(String key, String value) {
-        writeLock.lock();
-        try {
-            map.put(key, value);
-        } finally {
-            writeLock.unlock();
-        }
+        shardFor(key).put(key, value);
     }
 
-    public void delete(String key){
-        try{
-            writeLock.lock();
-            map.remove(key);
-        
-        }finally{
-            writeLock.unlock();
-        }
+    public void put(String key, String value, long sequence) {
+        shardFor(key).put(key, value, sequence);
+    }
+
+    // null value marks the key as deleted at sequence, get misses on it.
+    public void delete(String key, long sequence) {
+        put(key, null, sequence);
     }
 
+    public void delete(String key) {
+        shardFor(key).remove(key);
+    }
 
     public int size() {
-        readLock.lock();
-        try {
-            return map.size();
-        } finally {
-            readLock.unlock();
-        }
+        int size = 0;
+        for (Shard shard : shards)
+            size += shard.size();
+        return size;
     }
 
     public void clear() {
-        writeLock.lock();
-        try {
-            map.clear();
-        } finally {
-            writeLock.unlock();
+        for (Shard shard : shards)
+            shard.clear();
+    }
+
+    private Shard shardFor(String key) {
+        int h = key.hashCode();
+        return shards[(h ^ (h >>> 16)) & (shards.length - 1)];
+    }
+
+    private static final class Shard {
+        private final int capacity;
+        private final LinkedHashMap<String, Cached> map;
+        private final ReentrantLock lock = new ReentrantLock();
+        // biggest sequence evicted from this shard so far, guarded by lock.
+        private long evictedSequence = 0;
+
+        Shard(int capacity) {
+            this.capacity = capacity;
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                    if (size() <= Shard.this.capacity)
+                        return false;
+                    evictedSequence = Math.max(evictedSequence, eldest.getValue().sequence);
+                    return true;
+                }
+            };
+        }
+
+        String get(String key) {
+            lock.lock();
+            try {
+                Cached cached = map.get(key);
+                return cached == null ? null : cached.value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(String key, String value) {
+            lock.lock();
+            try {
+                map.put(key, new Cached(value, 0));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(String key, String value, long sequence) {
+            lock.lock();
+            try {
+                Cached cached = map.get(key);
+                if (cached == null ? sequence > evictedSequence : cached.sequence < sequence)
+                    map.put(key, new Cached(value, sequence));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(String key) {
+            lock.lock();
+            try {
+                map.remove(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return map.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                map.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class Cached {
+        final String value;
+        final long sequence;
+
+        Cached(String value, long sequence) {
+            this.value = value;
+            this.sequence = sequence;
         }
     }
 }
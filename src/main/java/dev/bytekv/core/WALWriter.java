@@ -4,13 +4,36 @@ import dev.bytekv.proto.LogEntryOuterClass;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.*;
 
+/*
+    * WAL is split in segments, one per memtable: wal-NNNNNN.log holds exactly the writes of the memtable with that segment id.
+      Once a memtable is flushed (and every older one too) its segment is deleted, segments of memtables that are still sealed or
+      active stay. So whatever segments are on disk at startup hold the writes that never made it into an SSTable, and only those.
+
+    * Segment ids keep growing across restarts (a new WALWriter starts after the biggest one on disk), so replaying segments in id
+      order replays memtables in the order they were written.
+
+    * Deleting a segment goes through the same queue as the writes, so a segment is never deleted while some of its writes are
+      still queued (they'd open the file again and leave a half segment behind).
+
+    * Tradeoffs:
+    - Writes are acknowledged once queued, fsync happens every SYNC_INTERVAL_MS. A crash can lose the last moments of writes.
+    - A memtable's segment may stay open a little after it is sealed, writers that got in before the seal still log to it.
+ */
+
 public class WALWriter {
-    private  FileOutputStream fos;
-    private  BufferedOutputStream bos;
-    private LinkedBlockingQueue<LogEntryOuterClass.LogEntry> queue;
+
+    // the single log file from before segments, replayed (and deleted) like the oldest segment.
+    static final String LEGACY_FILE = "master.log";
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final LinkedBlockingQueue<Record> queue;
 
     private final ExecutorService writerExecutor;
     private final ScheduledExecutorService flushExecutor;
@@ -18,8 +41,12 @@ public class WALWriter {
     private volatile boolean failed = false;
     private volatile boolean running = true;
 
-    String logFilePath;
-    private File f; 
+    private final File dir;
+    private final long lastSegment;
+    // segments with an open file, touched by the writer loop and flushAndSync, guarded by itself.
+    private final Map<Long, Segment> open = new TreeMap<>();
+    // set once a segment couldn't be deleted, every later one is kept as well so they all get replayed in order.
+    private boolean keepSegments = false;
 
     private final int MAX_BATCH_SIZE = 200;
     private final int QUEUE_CAPACITY = 10_000;
@@ -27,16 +54,18 @@ public class WALWriter {
     private final int SYNC_INTERVAL_MS = 500;
     private final int BUFFER_SIZE = 128 * 1024;
     private CountDownLatch shutCountDownLatch;
-    
-    public WALWriter(String logFilePath, CountDownLatch countDownLatch) throws IOException {
-        f = new File(logFilePath);
-        f.getParentFile().mkdirs();
+
+    public WALWriter(String logDir, CountDownLatch countDownLatch) throws IOException {
+        dir = new File(logDir);
+        dir.mkdirs();
 
         shutCountDownLatch = countDownLatch;
 
-        this.logFilePath = logFilePath;
-        fos = new FileOutputStream(f, true);
-        bos = new BufferedOutputStream(fos, BUFFER_SIZE);
+        long last = 0;
+        for (File f : segmentFiles(dir))
+            last = Math.max(last, segmentId(f));
+        lastSegment = last;
+
         queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
 
         writerExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "WAL-Writer"));
@@ -46,17 +75,51 @@ public class WALWriter {
         flushExecutor.scheduleAtFixedRate(this::flushAndSync, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
     }
 
-    public void stopIt(){
-        running = false;
+    /*
+        * Segments in dir, oldest first, the legacy master.log (if any) before all of them.
+     */
+    public static List<File> segmentFiles(File dir) {
+        List<File> files = new ArrayList<>();
+        File legacy = new File(dir, LEGACY_FILE);
+        if (legacy.isFile())
+            files.add(legacy);
+
+        TreeMap<Long, File> segments = new TreeMap<>();
+        File[] found = dir.listFiles((d, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (found != null) {
+            for (File f : found)
+                segments.put(segmentId(f), f);
+        }
+        files.addAll(segments.values());
+        return files;
     }
 
+    private static long segmentId(File f) {
+        String name = f.getName();
+        if (name.equals(LEGACY_FILE))
+            return 0;
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
 
+    private File segmentFile(long segment) {
+        return new File(dir, SEGMENT_PREFIX + String.format("%06d", segment) + SEGMENT_SUFFIX);
+    }
 
+    /*
+        * Biggest segment id found on disk when this writer started, ids handed out from now on must be bigger.
+     */
+    public long getLastSegment() {
+        return lastSegment;
+    }
 
-    public void writeToLog(LogEntryOuterClass.LogEntry entry) throws IOException {
+    public void stopIt(){
+        running = false;
+    }
+
+    public void writeToLog(long segment, LogEntryOuterClass.LogEntry entry) throws IOException {
         if (failed) throw new IOException("WAL in failed state!");
         try {
-            if (!queue.offer(entry, 30, TimeUnit.MILLISECONDS)) {
+            if (!queue.offer(new Record(segment, entry), 30, TimeUnit.MILLISECONDS)) {
                 throw new IOException("WAL queue overflow");
             }
         } catch (InterruptedException e) {
@@ -65,8 +128,27 @@ public class WALWriter {
         }
     }
 
+    /*
+        * Deletes segment after everything queued for it so far is written. Called once its memtable is flushed, nothing is logged
+          to it after that. Segments must go oldest first, a segment left behind while newer ones are gone would be replayed over
+          newer data, so this never gives up on an interrupt.
+     */
+    public void deleteSegment(long segment) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(new Record(segment, null));
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
     private void processLoop() {
-        List<LogEntryOuterClass.LogEntry> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        List<Record> batch = new ArrayList<>(MAX_BATCH_SIZE);
         try {
             while (running || !queue.isEmpty()) {
                 batch.clear();
@@ -77,9 +159,12 @@ public class WALWriter {
                     continue;
                 }
 
-                synchronized (bos) {
-                    for (LogEntryOuterClass.LogEntry entry : batch) {
-                        entry.writeDelimitedTo(bos);
+                synchronized (open) {
+                    for (Record record : batch) {
+                        if (record.entry == null)
+                            drop(record.segment);
+                        else
+                            segment(record.segment).write(record.entry);
                     }
                 }
             }
@@ -92,23 +177,46 @@ public class WALWriter {
         }
     }
 
-    
+    // caller holds open.
+    private Segment segment(long id) throws IOException {
+        Segment segment = open.get(id);
+        if (segment == null) {
+            segment = new Segment(segmentFile(id));
+            open.put(id, segment);
+        }
+        return segment;
+    }
+
+    // caller holds open.
+    private void drop(long id) throws IOException {
+        Segment segment = open.remove(id);
+        if (segment != null)
+            segment.close();
+        if (keepSegments)
+            return;
+        // one that stays is replayed on the next start. Harmless as long as all newer ones stay too, then they are replayed over it.
+        File f = segmentFile(id);
+        if (!f.delete() && f.exists()) {
+            keepSegments = true;
+            System.out.println("Could not delete WAL segment " + f.getName() + ", keeping all newer ones");
+        }
+    }
+
+
     private void flushAndSync() {
         try {
-            synchronized (bos) {
-                bos.flush();
-            }
-
-            long now = System.currentTimeMillis();
-            if (now % SYNC_INTERVAL_MS < FLUSH_INTERVAL_MS) {
-                synchronized (bos) {
+            boolean sync = System.currentTimeMillis() % SYNC_INTERVAL_MS < FLUSH_INTERVAL_MS;
+            synchronized (open) {
+                for (Segment segment : open.values()) {
+                    segment.bos.flush();
 
         /*
             * fos.getFD().sync() is a blocking thread which force flushes os page cache as well to make sure the data is actually persisted
             in the disk. This is time consuming because it waits until OS sends some kind of acknowlegement that data is succesfully stored in
             the disk. So, I'm asynchronously force flushing.
         */
-                    fos.getFD().sync();
+                    if (sync)
+                        segment.fos.getFD().sync();
                 }
             }
         } catch (IOException e) {
@@ -117,20 +225,10 @@ public class WALWriter {
         }
     }
 
-    public void truncateWALFile() throws IOException {
-        System.out.println("Truncating WAL file :///");
-        synchronized (bos) {
-            bos.flush();
-            bos.close();
-            fos.close();
-        }
-
-        new FileOutputStream(logFilePath, false).close();
-        this.fos = new FileOutputStream(f, true);
-        this.bos = new BufferedOutputStream(fos, BUFFER_SIZE);
-    }
-
 
+    /*
+        * Writes out everything queued (segment deletes included), then syncs and closes the segments still open.
+     */
     public void shutDown() throws IOException {
         running = false;
 
@@ -144,14 +242,48 @@ public class WALWriter {
             Thread.currentThread().interrupt();
         }
 
-        synchronized (bos) {
-            bos.flush();
-            fos.getFD().sync();
-            bos.close();
+        synchronized (open) {
+            Iterator<Segment> it = open.values().iterator();
+            while (it.hasNext()) {
+                Segment segment = it.next();
+                segment.bos.flush();
+                segment.fos.getFD().sync();
+                segment.close();
+                it.remove();
+            }
         }
     }
 
     public boolean isFailed() {
         return failed;
     }
+
+    // entry null means delete the segment.
+    private static final class Record {
+        final long segment;
+        final LogEntryOuterClass.LogEntry entry;
+
+        Record(long segment, LogEntryOuterClass.LogEntry entry) {
+            this.segment = segment;
+            this.entry = entry;
+        }
+    }
+
+    private final class Segment {
+        final FileOutputStream fos;
+        final BufferedOutputStream bos;
+
+        Segment(File file) throws IOException {
+            fos = new FileOutputStream(file, true);
+            bos = new BufferedOutputStream(fos, BUFFER_SIZE);
+        }
+
+        void write(LogEntryOuterClass.LogEntry entry) throws IOException {
+            entry.writeDelimitedTo(bos);
+        }
+
+        void close() throws IOException {
+            bos.close();
+        }
+    }
 }
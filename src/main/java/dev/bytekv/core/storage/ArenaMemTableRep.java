@@ -0,0 +1,433 @@
+package dev.bytekv.core.storage;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    * Memtable living in off-heap chunks (direct ByteBuffers). Keys, values and the skip list linking them are all written into the
+      chunks, an entry is addressed by a long (chunk index << 32 | offset) and there is not a single heap object per entry. With
+      multi GB write buffers that's millions of Strings and skip list nodes the GC no longer has to trace, and the whole memtable
+      goes away at once when its chunks are dropped after the flush.
+
+    * Node   : [value address 8][height 4][key length 4][next address 8 x height][key bytes], 8 byte aligned.
+    * Value  : [length 4][type 1][pad 3][expiresAt 8][sequence 8][value bytes], type and expiry as in SSTable, 8 byte aligned.
+
+    * A new key is written as one node with its value right behind it, so flush finds both in the same chunk. Overwriting a key
+      appends a new value and swings the node's value address to it (unless the value there has a bigger sequence, i.e. a newer
+      write got in first), the old value stays in the chunk as garbage until the flush.
+
+    * Inserts are lock free: space is taken from the current chunk with a getAndAdd, a node is linked level by level with a CAS
+      on its predecessor's next address (nodes are never removed, so a failed CAS just walks on from the same predecessor). Readers
+      never lock. Only opening a new chunk takes the monitor.
+
+    * Keys are ordered as unsigned UTF-8 bytes, the order SSTables use, so flush streams nodes straight into the writer.
+
+    * Tradeoffs:
+    - Overwrites of a hot key keep eating arena space until flush, the rep counts that space so it flushes sooner.
+    - Java 17 has no way to free a direct buffer on the spot, dropped chunks are released once the GC finds them unreachable.
+      -XX:MaxDirectMemorySize has to leave room for a few write buffers.
+    - Lookups compare keys byte by byte in direct memory, a bit slower than String.compareTo on heap.
+ */
+
+final class ArenaMemTableRep implements MemTableRep {
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final int MAX_HEIGHT = 12;
+    private static final int BRANCHING = 4;
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final int NODE_VALUE = 0;
+    private static final int NODE_HEIGHT = 8;
+    private static final int NODE_KEY_LENGTH = 12;
+    private static final int NODE_NEXT = 16;
+
+    private static final int VALUE_LENGTH = 0;
+    private static final int VALUE_TYPE = 4;
+    private static final int VALUE_EXPIRES = 8;
+    private static final int VALUE_SEQUENCE = 16;
+    private static final int VALUE_DATA = 24;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int chunkSize;
+    // index -> chunk, replaced as a whole under this when a chunk is added.
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private volatile Chunk current;
+
+    // bytes handed out to puts (the head node isn't counted), what put reports to MemTable.
+    private final AtomicLong allocated = new AtomicLong();
+    private final AtomicInteger entries = new AtomicInteger();
+    // head node is the very first allocation, so address 0 is never a successor and doubles as null.
+    private final long head;
+
+    ArenaMemTableRep(int chunkSize) {
+        this.chunkSize = chunkSize;
+        synchronized (this) {
+            this.current = addChunk(chunkSize);
+        }
+        this.head = allocate(NODE_NEXT + 8 * MAX_HEIGHT);
+        chunkOf(head).putInt(offset(head) + NODE_HEIGHT, MAX_HEIGHT);
+    }
+
+    // an eighth of the write buffer, so a memtable is a handful of chunks and the last one wastes little.
+    static int chunkSizeFor(long writeBufferSize) {
+        long size = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, writeBufferSize / 8));
+        return (int) align(size);
+    }
+
+    @Override
+    public long put(String key, String value, long expiresAt, long sequence) {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer kb = ByteBuffer.wrap(k);
+
+        byte type;
+        byte[] v;
+        if (value == null) {
+            type = SSTable.TYPE_TOMBSTONE;
+            expiresAt = 0;
+            v = EMPTY;
+        } else {
+            type = expiresAt != 0 ? SSTable.TYPE_EXPIRING : SSTable.TYPE_VALUE;
+            v = value.getBytes(StandardCharsets.UTF_8);
+        }
+        int valueSize = (int) align(VALUE_DATA + v.length);
+
+        long[] prev = new long[MAX_HEIGHT];
+        long[] next = new long[MAX_HEIGHT];
+        if (findSplice(kb, k.length, prev, next)) {
+            long record = allocate(valueSize);
+            writeValue(record, type, expiresAt, sequence, v);
+            setValue(next[0], record, sequence);
+            allocated.addAndGet(valueSize);
+            return valueSize;
+        }
+
+        int height = randomHeight();
+        int nodeSize = (int) align(NODE_NEXT + 8L * height + k.length);
+        long node = allocate(nodeSize + valueSize);
+        ByteBuffer buf = chunkOf(node);
+        int off = offset(node);
+        long record = node + nodeSize;
+        writeValue(record, type, expiresAt, sequence, v);
+        buf.putLong(off + NODE_VALUE, record);
+        buf.putInt(off + NODE_HEIGHT, height);
+        buf.putInt(off + NODE_KEY_LENGTH, k.length);
+        buf.put(off + NODE_NEXT + 8 * height, k);
+
+        // linked at level 0 it's in the map, the levels above only speed up searches.
+        while (true) {
+            LONGS.set(buf, off + NODE_NEXT, next[0]);
+            if (casNext(prev[0], 0, next[0], node))
+                break;
+            if (advance(prev, next, 0, kb, k.length)) {
+                // someone else inserted the same key meanwhile, our node is never linked and just stays garbage in the chunk.
+                setValue(next[0], record, sequence);
+                allocated.addAndGet(nodeSize + valueSize);
+                return nodeSize + valueSize;
+            }
+        }
+        entries.incrementAndGet();
+
+        for (int level = 1; level < height; level++) {
+            while (true) {
+                LONGS.set(buf, off + NODE_NEXT + 8 * level, next[level]);
+                if (casNext(prev[level], level, next[level], node))
+                    break;
+                advance(prev, next, level, kb, k.length);
+            }
+        }
+        allocated.addAndGet(nodeSize + valueSize);
+        return nodeSize + valueSize;
+    }
+
+    @Override
+    public Stored get(String key) {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer kb = ByteBuffer.wrap(k);
+
+        long x = head;
+        for (int level = MAX_HEIGHT - 1; level >= 0; level--) {
+            long n = next(x, level);
+            while (n != 0) {
+                int cmp = compare(n, kb, k.length);
+                if (cmp == 0)
+                    return readValue((long) LONGS.getVolatile(chunkOf(n), offset(n) + NODE_VALUE));
+                if (cmp > 0)
+                    break;
+                x = n;
+                n = next(x, level);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return entries.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return entries.get() == 0;
+    }
+
+    @Override
+    public long approximateMemoryUsage() {
+        return allocated.get();
+    }
+
+    @Override
+    public TableIterator iterator() {
+        return new ArenaIterator();
+    }
+
+    /*
+        * Fills prev/next with the nodes around key on every level. True if next[0] is key itself.
+     */
+    private boolean findSplice(ByteBuffer kb, int keyLength, long[] prev, long[] next) {
+        long x = head;
+        for (int level = MAX_HEIGHT - 1; level >= 0; level--) {
+            long n = next(x, level);
+            while (n != 0 && compare(n, kb, keyLength) < 0) {
+                x = n;
+                n = next(x, level);
+            }
+            prev[level] = x;
+            next[level] = n;
+        }
+        return next[0] != 0 && compare(next[0], kb, keyLength) == 0;
+    }
+
+    /*
+        * After a lost CAS on level: walks on from prev[level], which is still a valid predecessor. True if key itself turned up.
+     */
+    private boolean advance(long[] prev, long[] next, int level, ByteBuffer kb, int keyLength) {
+        long x = prev[level];
+        long n = next(x, level);
+        int cmp;
+        while (n != 0 && (cmp = compare(n, kb, keyLength)) <= 0) {
+            if (cmp == 0) {
+                prev[level] = x;
+                next[level] = n;
+                return true;
+            }
+            x = n;
+            n = next(x, level);
+        }
+        prev[level] = x;
+        next[level] = n;
+        return false;
+    }
+
+    // points node at record, unless its current value comes from a newer write.
+    private void setValue(long node, long record, long sequence) {
+        ByteBuffer buf = chunkOf(node);
+        int off = offset(node) + NODE_VALUE;
+        while (true) {
+            long current = (long) LONGS.getVolatile(buf, off);
+            if (chunkOf(current).getLong(offset(current) + VALUE_SEQUENCE) > sequence)
+                return;
+            if (LONGS.compareAndSet(buf, off, current, record))
+                return;
+        }
+    }
+
+    private void writeValue(long record, byte type, long expiresAt, long sequence, byte[] v) {
+        ByteBuffer buf = chunkOf(record);
+        int off = offset(record);
+        buf.putInt(off + VALUE_LENGTH, v.length);
+        buf.put(off + VALUE_TYPE, type);
+        buf.putLong(off + VALUE_EXPIRES, expiresAt);
+        buf.putLong(off + VALUE_SEQUENCE, sequence);
+        buf.put(off + VALUE_DATA, v);
+    }
+
+    private Stored readValue(long record) {
+        ByteBuffer buf = chunkOf(record);
+        int off = offset(record);
+        if (buf.get(off + VALUE_TYPE) == SSTable.TYPE_TOMBSTONE)
+            return new Stored(null, 0);
+
+        byte[] v = new byte[buf.getInt(off + VALUE_LENGTH)];
+        buf.get(off + VALUE_DATA, v);
+        return new Stored(new String(v, StandardCharsets.UTF_8), buf.getLong(off + VALUE_EXPIRES));
+    }
+
+    private int compare(long node, ByteBuffer kb, int keyLength) {
+        ByteBuffer buf = chunkOf(node);
+        int off = offset(node);
+        int height = buf.getInt(off + NODE_HEIGHT);
+        return TableIterator.compareKeys(buf, off + NODE_NEXT + 8 * height, buf.getInt(off + NODE_KEY_LENGTH), kb, 0, keyLength);
+    }
+
+    private long next(long node, int level) {
+        return (long) LONGS.getVolatile(chunkOf(node), offset(node) + NODE_NEXT + 8 * level);
+    }
+
+    private boolean casNext(long node, int level, long expected, long update) {
+        return LONGS.compareAndSet(chunkOf(node), offset(node) + NODE_NEXT + 8 * level, expected, update);
+    }
+
+    private static int randomHeight() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int height = 1;
+        while (height < MAX_HEIGHT && random.nextInt(BRANCHING) == 0)
+            height++;
+        return height;
+    }
+
+    /*
+        * Address of size fresh bytes. Anything bigger than a quarter chunk gets a chunk of its own instead of wasting the rest of
+          the current one.
+     */
+    private long allocate(int size) {
+        if (size > chunkSize / 4) {
+            synchronized (this) {
+                Chunk dedicated = addChunk(size);
+                return address(dedicated.index, 0);
+            }
+        }
+
+        while (true) {
+            Chunk c = current;
+            int off = c.top.getAndAdd(size);
+            if (off + size <= c.capacity)
+                return address(c.index, off);
+            synchronized (this) {
+                if (current == c)
+                    current = addChunk(chunkSize);
+            }
+        }
+    }
+
+    // caller holds the monitor.
+    private Chunk addChunk(int capacity) {
+        ByteBuffer buf = ByteBuffer.allocateDirect(capacity + 7).alignedSlice(8).order(ByteOrder.nativeOrder());
+        ByteBuffer[] next = Arrays.copyOf(chunks, chunks.length + 1);
+        next[chunks.length] = buf;
+        chunks = next;
+        return new Chunk(chunks.length - 1, capacity);
+    }
+
+    private static long address(int chunk, int offset) {
+        return ((long) chunk << 32) | offset;
+    }
+
+    private ByteBuffer chunkOf(long address) {
+        return chunks[(int) (address >>> 32)];
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    private static final class Chunk {
+        final int index;
+        final int capacity;
+        final AtomicInteger top = new AtomicInteger();
+
+        Chunk(int index, int capacity) {
+            this.index = index;
+            this.capacity = capacity;
+        }
+    }
+
+    /*
+        * Level 0 in order. Key and value are handed out in place inside the chunk, only a value that was overwritten into another
+          chunk gets both copied into a scratch buffer.
+     */
+    private final class ArenaIterator implements TableIterator {
+        private long node = head;
+        private ByteBuffer buffer;
+        private int keyOffset, keyLength, valueOffset, valueLength;
+        private boolean tombstone;
+        private long expiresAt;
+        private ByteBuffer scratch = ByteBuffer.allocate(256);
+
+        @Override
+        public boolean next() {
+            node = ArenaMemTableRep.this.next(node, 0);
+            if (node == 0)
+                return false;
+
+            ByteBuffer nodeBuf = chunkOf(node);
+            int off = offset(node);
+            keyOffset = off + NODE_NEXT + 8 * nodeBuf.getInt(off + NODE_HEIGHT);
+            keyLength = nodeBuf.getInt(off + NODE_KEY_LENGTH);
+
+            long record = (long) LONGS.getVolatile(nodeBuf, off + NODE_VALUE);
+            ByteBuffer valueBuf = chunkOf(record);
+            int voff = offset(record);
+            tombstone = valueBuf.get(voff + VALUE_TYPE) == SSTable.TYPE_TOMBSTONE;
+            expiresAt = valueBuf.get(voff + VALUE_TYPE) == SSTable.TYPE_EXPIRING ? valueBuf.getLong(voff + VALUE_EXPIRES) : 0;
+            valueLength = valueBuf.getInt(voff + VALUE_LENGTH);
+
+            if (valueBuf == nodeBuf) {
+                buffer = nodeBuf;
+                valueOffset = voff + VALUE_DATA;
+                return true;
+            }
+
+            if (scratch.capacity() < keyLength + valueLength)
+                scratch = ByteBuffer.allocate(Math.max(keyLength + valueLength, scratch.capacity() * 2));
+            scratch.put(0, nodeBuf, keyOffset, keyLength);
+            scratch.put(keyLength, valueBuf, voff + VALUE_DATA, valueLength);
+            buffer = scratch;
+            keyOffset = 0;
+            valueOffset = keyLength;
+            return true;
+        }
+
+        @Override
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        @Override
+        public int keyOffset() {
+            return keyOffset;
+        }
+
+        @Override
+        public int keyLength() {
+            return keyLength;
+        }
+
+        @Override
+        public int valueOffset() {
+            return valueOffset;
+        }
+
+        @Override
+        public int valueLength() {
+            return valueLength;
+        }
+
+        @Override
+        public boolean isTombstone() {
+            return tombstone;
+        }
+
+        @Override
+        public long expiresAt() {
+            return expiresAt;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package dev.bytekv.core.storage;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+    * LRUCache at Coordinator level only remembers whole values, so a key that misses it always pays a block read even when its neighbours
+      were just read from the same block. BlockCache keeps verified data blocks in memory, keyed by (namespace, table id, block offset), and is
+      shared by every SSTable of the store, so hot blocks stay cached no matter which key pulled them in.
+
+    * Table ids are only unique within a store, every store counts from the same start. So each SSTManager takes its own namespace from
+      the cache (newNamespace) and all of its tables use it, that way one cache can be handed to several stores without store A's table 3
+      being served to store B's table 3, or a compaction in one store evicting the other's blocks.
+
+    * Capacity is in bytes, not entries, because block sizes vary (a single big value makes a big block).
+
+    * One global LRU would make every get fight for one lock, so the cache is split into shards by hash of the key, each shard being a small
+      access ordered LinkedHashMap with its own lock and its own slice of the capacity.
+
+    * Tradeoffs:
+    - LRU is per shard, so eviction order is only approximately global LRU.
+    - Blocks of mmapped tables are never cached, page cache already does that job for them.
+ */
+
+public class BlockCache {
+
+    private static final int ENTRY_OVERHEAD = 64;
+
+    private final Shard[] shards;
+    private final long capacity;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong inserts = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong namespaces = new AtomicLong();
+
+    public BlockCache(long capacityBytes) {
+        this(capacityBytes, 16);
+    }
+
+    public BlockCache(long capacityBytes, int shardCount) {
+        if (Integer.bitCount(shardCount) != 1)
+            throw new IllegalArgumentException("shardCount must be a power of two");
+
+        this.capacity = capacityBytes;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++)
+            shards[i] = new Shard(capacityBytes / shardCount);
+    }
+
+    // a namespace no one else using this cache has, for all tables of one store.
+    public long newNamespace() {
+        return namespaces.incrementAndGet();
+    }
+
+    /*
+        * Returned buffer is shared with other readers, so it must only be read with absolute gets, never by moving its position.
+     */
+    public ByteBuffer get(long namespace, int tableId, long blockOffset) {
+        BlockKey key = new BlockKey(namespace, tableId, blockOffset);
+        ByteBuffer block = shardFor(key).get(key);
+        if (block == null)
+            misses.incrementAndGet();
+        else
+            hits.incrementAndGet();
+        return block;
+    }
+
+    public void put(long namespace, int tableId, long blockOffset, ByteBuffer block) {
+        BlockKey key = new BlockKey(namespace, tableId, blockOffset);
+        shardFor(key).put(key, block);
+        inserts.incrementAndGet();
+    }
+
+    /*
+        * Drops every block of a table. Called when a table is released for good after compaction, blocks of all other tables (and of
+          tables with the same id in other namespaces) stay cached.
+     */
+    public void invalidate(long namespace, int tableId) {
+        for (Shard shard : shards)
+            shard.removeTable(namespace, tableId);
+    }
+
+    private Shard shardFor(BlockKey key) {
+        return shards[key.hashCode() & (shards.length - 1)];
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getUsage() {
+        long usage = 0;
+        for (Shard shard : shards)
+            usage += shard.usage();
+        return usage;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getInserts() {
+        return inserts.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockCache{usage=" + getUsage() + "/" + capacity + ", hits=" + getHits() + ", misses=" + getMisses()
+                + ", evictions=" + getEvictions() + "}";
+    }
+
+    private static long charge(ByteBuffer block) {
+        return block.capacity() + ENTRY_OVERHEAD;
+    }
+
+    private final class Shard {
+        private final long capacity;
+        private final LinkedHashMap<BlockKey, ByteBuffer> map = new LinkedHashMap<>(64, 0.75f, true);
+        private final ReentrantLock lock = new ReentrantLock();
+        private long usage = 0;
+
+        Shard(long capacity) {
+            this.capacity = capacity;
+        }
+
+        ByteBuffer get(BlockKey key) {
+            lock.lock();
+            try {
+                return map.get(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(BlockKey key, ByteBuffer block) {
+            long size = charge(block);
+            if (size > capacity)
+                return;
+
+            lock.lock();
+            try {
+                ByteBuffer old = map.put(key, block);
+                if (old != null)
+                    usage -= charge(old);
+                usage += size;
+
+                Iterator<Map.Entry<BlockKey, ByteBuffer>> it = map.entrySet().iterator();
+                while (usage > capacity && it.hasNext()) {
+                    Map.Entry<BlockKey, ByteBuffer> eldest = it.next();
+                    usage -= charge(eldest.getValue());
+                    it.remove();
+                    evictions.incrementAndGet();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void removeTable(long namespace, int tableId) {
+            lock.lock();
+            try {
+                Iterator<Map.Entry<BlockKey, ByteBuffer>> it = map.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<BlockKey, ByteBuffer> e = it.next();
+                    if (e.getKey().namespace == namespace && e.getKey().tableId == tableId) {
+                        usage -= charge(e.getValue());
+                        it.remove();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long usage() {
+            lock.lock();
+            try {
+                return usage;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final class BlockKey {
+        final long namespace;
+        final int tableId;
+        final long blockOffset;
+
+        BlockKey(long namespace, int tableId, long blockOffset) {
+            this.namespace = namespace;
+            this.tableId = tableId;
+            this.blockOffset = blockOffset;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof BlockKey)) return false;
+            BlockKey that = (BlockKey) o;
+            return namespace == that.namespace && tableId == that.tableId && blockOffset == that.blockOffset;
+        }
+
+        @Override
+        public int hashCode() {
+            long h = (blockOffset * 0x9E3779B97F4A7C15L + tableId) * 0x9E3779B97F4A7C15L + namespace;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
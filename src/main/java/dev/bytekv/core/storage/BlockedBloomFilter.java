@@ -0,0 +1,109 @@
+package dev.bytekv.core.storage;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/*
+    * Blocked (split) bloom filter. Bits are grouped into 512 bit blocks, exactly one 64 byte cache line of a long[]. First half of the key hash
+      picks the block and all k probes are set inside that one block, so a lookup costs at most one cache miss instead of up to k, which adds up
+      when a negative lookup checks dozens of tables.
+
+    * Tradeoffs:
+    - Keys are not spread perfectly evenly across blocks, so for the same bits per key the false positive rate is a bit higher than
+      classic BloomFilter. One or two extra bits per key buys it back.
+ */
+
+public class BlockedBloomFilter implements KeyFilter {
+
+    private static final int WORDS_PER_BLOCK = 8;
+    private static final int BITS_PER_BLOCK = WORDS_PER_BLOCK * 64;
+
+    private final long[] words;
+    private final int numBlocks;
+    private final int numHashes;
+
+    private BlockedBloomFilter(long[] words, int numHashes) {
+        this.words = words;
+        this.numBlocks = words.length / WORDS_PER_BLOCK;
+        this.numHashes = numHashes;
+    }
+
+    public static BlockedBloomFilter forKeys(long expectedKeys, int bitsPerKey) {
+        long bits = Math.max(BITS_PER_BLOCK, expectedKeys * bitsPerKey);
+        long blocks = Math.min((bits + BITS_PER_BLOCK - 1) / BITS_PER_BLOCK, Integer.MAX_VALUE / WORDS_PER_BLOCK);
+        return new BlockedBloomFilter(new long[(int) blocks * WORDS_PER_BLOCK], BloomFilter.optimalHashes(bitsPerKey));
+    }
+
+    @Override
+    public void add(long hash) {
+        int base = blockStart(hash);
+        int h = (int) hash;
+        int delta = Integer.rotateRight(h, 17) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            int bit = h >>> 23;
+            words[base + (bit >>> 6)] |= 1L << bit;
+            h += delta;
+        }
+    }
+
+    @Override
+    public boolean mightContain(long hash) {
+        int base = blockStart(hash);
+        int h = (int) hash;
+        int delta = Integer.rotateRight(h, 17) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            int bit = h >>> 23;
+            if ((words[base + (bit >>> 6)] & (1L << bit)) == 0)
+                return false;
+            h += delta;
+        }
+        return true;
+    }
+
+    // upper 32 bits of hash pick the block, lower 32 bits (top 9 bits of it after every step) pick bits inside the block.
+    private int blockStart(long hash) {
+        int block = (int) (((hash >>> 32) * numBlocks) >>> 32);
+        return block * WORDS_PER_BLOCK;
+    }
+
+    /*
+        * Stored as numHashes(int) | wordCount(int) | words(long...)
+     */
+    @Override
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(numHashes);
+        out.writeInt(words.length);
+        for (long word : words)
+            out.writeLong(word);
+    }
+
+    public static BlockedBloomFilter readFrom(ByteBuffer in) {
+        int numHashes = in.getInt();
+        int wordCount = in.getInt();
+        long[] words = new long[wordCount];
+        for (int i = 0; i < wordCount; i++)
+            words[i] = in.getLong();
+        return new BlockedBloomFilter(words, numHashes);
+    }
+
+    /*
+        * Every block is its own little bloom filter, so the estimate is the average of fill^k over blocks.
+     */
+    @Override
+    public double estimatedFalsePositiveRate() {
+        double total = 0;
+        for (int b = 0; b < numBlocks; b++) {
+            int set = 0;
+            for (int w = 0; w < WORDS_PER_BLOCK; w++)
+                set += Long.bitCount(words[b * WORDS_PER_BLOCK + w]);
+            total += Math.pow((double) set / BITS_PER_BLOCK, numHashes);
+        }
+        return total / numBlocks;
+    }
+
+    @Override
+    public Type type() {
+        return Type.BLOCKED_BLOOM;
+    }
+}
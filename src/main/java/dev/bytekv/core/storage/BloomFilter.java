@@ -3,87 +3,214 @@ package dev.bytekv.core.storage;
 /*
     Bloom filters are  probabilistic data structure which can be used to find if some data exists or not by using hashing.
     They can sometimes spit out false positives (i.e even if data doesnt exist they show that they exist) because of hash collision
-    between other keys. To decrease collision rate, we can use strong multiple function and more number of bitsets.
+    between other keys. To decrease collision rate, we can use well mixed hashes and more number of bitsets.
 
     Bloom filters works wonder when we have to iterate through multiple SST to find value.
 
+    * A fixed size filter is useless for big tables, once a merged table holds millions of keys nearly every bit is set and every lookup is a
+    false positive. So every table gets its own filter sized from its key count: m = keys * bitsPerKey bits and k = bitsPerKey * ln2 probes,
+    which is the k that minimises false positive rate for that m/n (10 bits per key gives roughly 1%).
+
  */
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.BitSet;
 
-public class BloomFilter {
+public class BloomFilter implements KeyFilter {
+    private static final int MIN_BITS = 64;
+    private static final int MAX_HASHES = 30;
+
     private final BitSet bitset;
     private final int size;
+    private final int numHashes;
 
-    public BloomFilter(int size) {
+    private BloomFilter(int size, int numHashes) {
         this.size = size;
+        this.numHashes = numHashes;
         this.bitset = new BitSet(size);
     }
 
+    public static BloomFilter forKeys(long expectedKeys, int bitsPerKey) {
+        long bits = Math.max(MIN_BITS, expectedKeys * bitsPerKey);
+        int size = (int) Math.min(bits, Integer.MAX_VALUE - 64);
+        return new BloomFilter(size, optimalHashes(bitsPerKey));
+    }
+
+    static int optimalHashes(int bitsPerKey) {
+        int k = (int) Math.round(bitsPerKey * Math.log(2));
+        return Math.max(1, Math.min(MAX_HASHES, k));
+    }
+
     public void add(String key) {
-        int[] hashes = getHashes(key);
-        for (int hash : hashes) {
-            bitset.set(Math.abs(hash % size), true);
-        }
+        add(hash(key));
+    }
+
+    @Override
+    public void add(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < numHashes; i++)
+            bitset.set(probe(h1, h2, i));
+    }
+
+    /*
+        * Filter is stored inside the SSTable as size(int) | numHashes(int) | wordCount(int) | words(long...), so it survives restarts
+          without rebuilding it from data.
+    */
+    @Override
+    public void writeTo(DataOutputStream out) throws IOException {
+        long[] words = bitset.toLongArray();
+        out.writeInt(size);
+        out.writeInt(numHashes);
+        out.writeInt(words.length);
+        for (long word : words)
+            out.writeLong(word);
+    }
+
+    public static BloomFilter readFrom(ByteBuffer in) {
+        int size = in.getInt();
+        int numHashes = in.getInt();
+        int wordCount = in.getInt();
+        long[] words = new long[wordCount];
+        for (int i = 0; i < wordCount; i++)
+            words[i] = in.getLong();
+        return new BloomFilter(size, numHashes, BitSet.valueOf(words));
+    }
+
+    private BloomFilter(int size, int numHashes, BitSet bitset) {
+        this.size = size;
+        this.numHashes = numHashes;
+        this.bitset = bitset;
     }
 
     public boolean mightContain(String key) {
-        int[] hashes = getHashes(key);
-        for (int hash : hashes) {
-            if (!bitset.get(Math.abs(hash % size))) {
+        return mightContain(hash(key));
+    }
+
+    @Override
+    public boolean mightContain(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < numHashes; i++) {
+            if (!bitset.get(probe(h1, h2, i)))
                 return false;
-            }
         }
         return true;
     }
 
-    private int[] getHashes(String key) {
-        return new int[]{
-            sha256Hash(key),
-            murmurHash3(key),
-            fnv1aHash(key)
-        };
+    @Override
+    public Type type() {
+        return Type.BLOOM;
     }
 
-    private int sha256Hash(String key) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hash = md.digest(key.getBytes(StandardCharsets.UTF_8));
-            return byteArrayToInt(hash);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 not available", e);
-        }
+    public int getSize() {
+        return size;
     }
 
-    private int murmurHash3(String key) {
-        byte[] data = key.getBytes(StandardCharsets.UTF_8);
-        int hash = 0x9747b28c; // seed
-        for (byte b : data) {
-            hash ^= b;
-            hash *= 0x5bd1e995;
-            hash ^= hash >>> 15;
-        }
-        return hash;
+    public int getNumHashes() {
+        return numHashes;
+    }
+
+    /*
+        * Chance that a key which was never added passes the filter. With a fraction p of bits set, a random key passes when all k
+          probes land on set bits, which is p^k. Works from the bits alone, so it's just as accurate for filters loaded from disk.
+     */
+    @Override
+    public double estimatedFalsePositiveRate() {
+        double fill = (double) bitset.cardinality() / size;
+        return Math.pow(fill, numHashes);
     }
 
-    private int fnv1aHash(String key) {
-        final int FNV_PRIME = 0x01000193;
-        int hash = 0x811c9dc5;
-        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
-            hash ^= b;
-            hash *= FNV_PRIME;
+    /*
+        * One 64-bit hash per key, computed straight from the String's chars, so no byte[] is created and no digest is looked up.
+          It's a murmur3 style mix: every char is folded in with a multiply/rotate and the result is finalised with fmix64 so
+          both 32-bit halves come out well distributed. The two halves then serve as h1 and h2 for double hashing.
+
+        * What gets hashed is the key as it's stored, its UTF-8 bytes the way getBytes writes them, read back as UTF-16 chars. For a
+          well formed key those are just its chars, an unpaired surrogate however is stored as '?' and so is hashed as '?' here. That
+          way this and hash(ByteBuffer, ...) below agree on every key and a filter never hides a key it was built with.
+
+        * Lookups hash a key once and reuse that long for every table they check (see LookupKey).
+     */
+    public static long hash(String key) {
+        int n = key.length();
+        long h = 0x9E3779B97F4A7C15L ^ n;
+        for (int i = 0; i < n; i++) {
+            char c = key.charAt(i);
+            if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(key.charAt(i + 1))) {
+                    h = mixChar(h, c);
+                    c = key.charAt(++i);
+                } else {
+                    c = '?';
+                }
+            }
+            h = mixChar(h, c);
         }
-        return hash;
+        return fmix64(h);
     }
 
-    private int byteArrayToInt(byte[] b) {
-        int result = 0;
-        for (int i = 0; i < 4 && i < b.length; i++) {
-            result = (result << 8) | (b[i] & 0xff);
+    /*
+        * Same hash for a key that's still UTF-8 bytes inside a buffer, used by flush and compaction which never turn keys into Strings.
+          UTF-8 is decoded to UTF-16 chars (4 byte sequences become a surrogate pair) and those are mixed exactly like hash(String)
+          does, so tables written either way can be probed with LookupKey's hash. Needs a first pass for the char count.
+     */
+    public static long hash(ByteBuffer buf, int offset, int length) {
+        int end = offset + length;
+        int chars = 0;
+        for (int i = offset; i < end; i++) {
+            int b = buf.get(i) & 0xFF;
+            if ((b & 0xC0) != 0x80)
+                chars += b >= 0xF0 ? 2 : 1;
         }
-        return result;
+
+        long h = 0x9E3779B97F4A7C15L ^ chars;
+        int i = offset;
+        while (i < end) {
+            int b = buf.get(i) & 0xFF;
+            int cp;
+            if (b < 0x80) {
+                cp = b;
+                i += 1;
+            } else if (b < 0xE0) {
+                cp = ((b & 0x1F) << 6) | (buf.get(i + 1) & 0x3F);
+                i += 2;
+            } else if (b < 0xF0) {
+                cp = ((b & 0x0F) << 12) | ((buf.get(i + 1) & 0x3F) << 6) | (buf.get(i + 2) & 0x3F);
+                i += 3;
+            } else {
+                cp = ((b & 0x07) << 18) | ((buf.get(i + 1) & 0x3F) << 12) | ((buf.get(i + 2) & 0x3F) << 6) | (buf.get(i + 3) & 0x3F);
+                i += 4;
+                h = mixChar(h, Character.highSurrogate(cp));
+                cp = Character.lowSurrogate(cp);
+            }
+            h = mixChar(h, cp);
+        }
+        return fmix64(h);
+    }
+
+    private static long mixChar(long h, int c) {
+        h ^= c;
+        h *= 0x87C37B91114253D5L;
+        return Long.rotateLeft(h, 31);
+    }
+
+    private static long fmix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /*
+        * i-th probe = h1 + i * h2 (Kirsch-Mitzenmacher double hashing), mapped onto [0, size) with a multiply-shift instead of a modulo.
+     */
+    private int probe(int h1, int h2, int i) {
+        int combined = h1 + i * h2;
+        return (int) (((combined & 0xFFFFFFFFL) * size) >>> 32);
     }
-}
\ No newline at end of file
+}
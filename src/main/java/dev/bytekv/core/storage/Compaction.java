@@ -0,0 +1,54 @@
+package dev.bytekv.core.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+    * One unit of compaction work picked by a CompactionStrategy: input tables (oldest data first, so newer inputs win on equal keys),
+      the level the output goes to and the size output tables are cut at.
+
+    * A single input whose level differs from outputLevel is moved without being rewritten.
+ */
+
+public final class Compaction {
+
+    private final int level;
+    private final int outputLevel;
+    private final List<SSTable> inputs;
+    private final long maxOutputFileSize;
+
+    public Compaction(int level, int outputLevel, List<SSTable> inputs, long maxOutputFileSize) {
+        this.level = level;
+        this.outputLevel = outputLevel;
+        this.inputs = Collections.unmodifiableList(new ArrayList<>(inputs));
+        this.maxOutputFileSize = maxOutputFileSize;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getOutputLevel() {
+        return outputLevel;
+    }
+
+    public List<SSTable> getInputs() {
+        return inputs;
+    }
+
+    public long getMaxOutputFileSize() {
+        return maxOutputFileSize;
+    }
+
+    public boolean isTrivialMove() {
+        return inputs.size() == 1 && level != outputLevel;
+    }
+
+    public long inputBytes() {
+        long bytes = 0;
+        for (SSTable sst : inputs)
+            bytes += sst.getFileSize();
+        return bytes;
+    }
+}
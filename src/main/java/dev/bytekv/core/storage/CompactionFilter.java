@@ -0,0 +1,31 @@
+package dev.bytekv.core.storage;
+
+import java.io.ByteArrayOutputStream;
+
+/*
+    * Hook called by SSTManager for every live value a compaction is about to write (tombstones and shadowed versions never reach it),
+      so data can be dropped or rewritten as a side effect of work compaction does anyway, no foreground scan needed.
+
+    * KEEP         : entry is written as is.
+    * REMOVE       : entry is deleted. It's written as a tombstone, so an older version of the key in a table outside this compaction
+                     can't come back, and the tombstone itself is dropped once nothing older is left (same as any delete).
+    * CHANGE_VALUE : whatever the filter wrote into newValue replaces the value, expiry is kept.
+
+    * entry is only valid during the call (see TableIterator). One filter serves every compaction and subcompaction thread, so it must
+      be thread safe, which a filter without state trivially is.
+
+    * Tradeoffs:
+    - A filter only sees data when compaction happens to rewrite it. Data sitting in a level nothing compacts stays until it does.
+ */
+
+public interface CompactionFilter {
+
+    enum Decision { KEEP, REMOVE, CHANGE_VALUE }
+
+    /*
+        * level is the level the compaction writes to. newValue comes in empty and is only read for CHANGE_VALUE.
+     */
+    Decision filter(int level, TableIterator entry, ByteArrayOutputStream newValue);
+
+    String name();
+}
@@ -0,0 +1,106 @@
+package dev.bytekv.core.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    * Counters kept by SSTManager for whichever strategy is running. Write amplification is every byte written to tables (flushes plus
+      compaction output) over bytes flushed, i.e. how many times a byte coming from the memtable got written on average.
+ */
+
+public class CompactionStats {
+
+    private final CompactionStrategy.Type strategy;
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong bytesFlushed = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong trivialMoves = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong droppedTombstones = new AtomicLong();
+    private final AtomicLong filteredEntries = new AtomicLong();
+
+    CompactionStats(CompactionStrategy.Type strategy) {
+        this.strategy = strategy;
+    }
+
+    void recordFlush(long bytes) {
+        flushes.incrementAndGet();
+        bytesFlushed.addAndGet(bytes);
+    }
+
+    void recordCompaction(long read, long written) {
+        compactions.incrementAndGet();
+        bytesRead.addAndGet(read);
+        bytesWritten.addAndGet(written);
+    }
+
+    void recordDroppedTombstones(long count) {
+        droppedTombstones.addAndGet(count);
+    }
+
+    void recordFilteredEntries(long count) {
+        filteredEntries.addAndGet(count);
+    }
+
+    void recordTrivialMove() {
+        trivialMoves.incrementAndGet();
+    }
+
+    public CompactionStrategy.Type getStrategy() {
+        return strategy;
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public long getBytesFlushed() {
+        return bytesFlushed.get();
+    }
+
+    public long getCompactions() {
+        return compactions.get();
+    }
+
+    public long getTrivialMoves() {
+        return trivialMoves.get();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    /*
+        * Tombstones compaction got rid of because nothing older was left for them to delete.
+     */
+    public long getDroppedTombstones() {
+        return droppedTombstones.get();
+    }
+
+    /*
+        * Values the CompactionFilter removed or changed.
+     */
+    public long getFilteredEntries() {
+        return filteredEntries.get();
+    }
+
+    public double getWriteAmplification() {
+        long flushed = bytesFlushed.get();
+        if (flushed == 0)
+            return 0.0;
+        return (double) (flushed + bytesWritten.get()) / flushed;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactionStats{strategy=" + strategy + ", flushed=" + getBytesFlushed() + ", compactions=" + getCompactions()
+                + ", moves=" + getTrivialMoves() + ", read=" + getBytesRead() + ", written=" + getBytesWritten() + ", droppedTombstones=" + getDroppedTombstones()
+                + ", filtered=" + getFilteredEntries()
+                + ", writeAmp=" + String.format("%.2f", getWriteAmplification()) + "}";
+    }
+}
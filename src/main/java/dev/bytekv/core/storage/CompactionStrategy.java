@@ -0,0 +1,76 @@
+package dev.bytekv.core.storage;
+
+import java.util.List;
+
+/*
+    * Decides what to compact next. SSTManager owns the actual merging, manifest logging and Version swap, a strategy only looks at
+      the current Version and answers with a Compaction (or null when the tree is in shape).
+
+    * Whatever a strategy picks must keep the rule reads depend on: a table never ends up above (shallower, or newer by sequence in the
+      same overlapping level) a table holding newer data for the same key. In practice that means merging runs that are contiguous in
+      sequence order and never moving data up.
+ */
+
+public interface CompactionStrategy {
+
+    /*
+        * Next compaction to run or null. Level 0 tables with maxSequence >= oldestPendingFlush must be left alone, an older flush is
+          still being written and will land in level 0 after them.
+     */
+    Compaction pick(Version version, long oldestPendingFlush);
+
+    /*
+        * Estimate of bytes that still have to be rewritten before the tree is back within this strategy's targets.
+     */
+    long pendingCompactionBytes(Version version);
+
+    Type type();
+
+    /*
+        * Fallback for when the tree is otherwise in shape: the table with the highest share of tombstones (at least
+          tombstoneCompactionRatio) that nothing older overlaps, rewritten in place. Being bottommost for its range, every tombstone and
+          shadowed value in it is dropped, so the rewrite can't be picked again.
+     */
+    static Compaction tombstoneCompaction(Version v, StorageOptions options, long oldestPendingFlush) {
+        SSTable best = null;
+        int bestLevel = -1;
+        for (int level = 0; level < v.levelCount(); level++) {
+            for (SSTable sst : v.tables(level)) {
+                if (sst.getTombstoneCount() == 0 || sst.getTombstoneRatio() < options.getTombstoneCompactionRatio())
+                    continue;
+                if (level == 0 && sst.getMaxSequence() >= oldestPendingFlush)
+                    continue;
+                if (best != null && sst.getTombstoneRatio() <= best.getTombstoneRatio())
+                    continue;
+                if (!v.olderOverlapping(List.of(sst), sst.minKeyBytes(), sst.maxKeyBytes(), sst.getMaxSequence()).isEmpty())
+                    continue;
+                best = sst;
+                bestLevel = level;
+            }
+        }
+        if (best == null)
+            return null;
+        long maxFileSize = v.isDisjoint(bestLevel) ? options.getTargetFileSize() : Long.MAX_VALUE;
+        return new Compaction(bestLevel, bestLevel, List.of(best), maxFileSize);
+    }
+
+    enum Type {
+        // read optimized: non-overlapping levels with size targets, about one table per level per lookup.
+        LEVELED,
+        // write optimized: similar sized tables of a tier are merged into one table of the next tier.
+        SIZE_TIERED,
+        // sorted runs merged by size ratio, a full merge when space amplification gets too high. Least rewriting, good for TTL heavy data.
+        UNIVERSAL;
+
+        public CompactionStrategy create(StorageOptions options) {
+            switch (this) {
+                case SIZE_TIERED:
+                    return new SizeTieredCompactionStrategy(options);
+                case UNIVERSAL:
+                    return new UniversalCompactionStrategy(options);
+                default:
+                    return new LeveledCompactionStrategy(options);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package dev.bytekv.core.storage;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/*
+    * Per table filter answering "might this key be here?". Keys are passed as their 64-bit BloomFilter.hash so one hash serves every
+      table and every filter type checked during a lookup.
+ */
+
+public interface KeyFilter {
+
+    void add(long hash);
+
+    boolean mightContain(long hash);
+
+    void writeTo(DataOutputStream out) throws IOException;
+
+    double estimatedFalsePositiveRate();
+
+    Type type();
+
+    /*
+        * Type id is stored in table's meta block, so tables written with different filter types can live side by side.
+     */
+    enum Type {
+        BLOOM(0),
+        BLOCKED_BLOOM(1);
+
+        private final int id;
+
+        Type(int id) {
+            this.id = id;
+        }
+
+        public int id() {
+            return id;
+        }
+
+        public static Type fromId(int id) {
+            for (Type t : values()) {
+                if (t.id == id)
+                    return t;
+            }
+            throw new IllegalArgumentException("unknown filter type " + id);
+        }
+
+        public KeyFilter create(long expectedKeys, int bitsPerKey) {
+            switch (this) {
+                case BLOCKED_BLOOM:
+                    return BlockedBloomFilter.forKeys(expectedKeys, bitsPerKey);
+                default:
+                    return BloomFilter.forKeys(expectedKeys, bitsPerKey);
+            }
+        }
+
+        public KeyFilter readFrom(ByteBuffer in) {
+            switch (this) {
+                case BLOCKED_BLOOM:
+                    return BlockedBloomFilter.readFrom(in);
+                default:
+                    return BloomFilter.readFrom(in);
+            }
+        }
+    }
+}
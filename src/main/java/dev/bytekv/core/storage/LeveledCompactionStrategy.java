@@ -0,0 +1,194 @@
+package dev.bytekv.core.storage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+    * Leveled compaction. Level 0 holds flushed tables that overlap each other, every deeper level is split by key range into
+      tables that don't overlap, so a point read touches all of level 0 but at most one table in each level below.
+
+    * Level 0 is compacted once it has level0CompactionTrigger tables, level n >= 1 once it holds more than
+      maxBytesForLevelBase * levelSizeMultiplier^(n-1) bytes. The level furthest over its target goes first.
+
+    * For level n >= 1 the oldest table is picked and merged only with the tables of level n+1 overlapping its key range. Output is
+      cut at targetFileSize, so the next compaction of that range again only rewrites a few small tables.
+
+    * With nothing over target, tables made mostly of tombstones (tombstoneCompactionRatio) keep being compacted towards the bottom
+      where their deletes are finally dropped, see pickTombstones.
+
+    * Tradeoffs:
+    - Every byte gets rewritten about levelSizeMultiplier times per level it travels through, leveled trades write amplification
+      for read amplification and space.
+ */
+
+public class LeveledCompactionStrategy implements CompactionStrategy {
+
+    private final StorageOptions options;
+
+    public LeveledCompactionStrategy(StorageOptions options) {
+        this.options = options;
+    }
+
+    @Override
+    public Type type() {
+        return Type.LEVELED;
+    }
+
+    @Override
+    public Compaction pick(Version v, long oldestPendingFlush) {
+        List<SSTable> level0 = new ArrayList<>(v.tables(0));
+        level0.removeIf(sst -> sst.getMaxSequence() >= oldestPendingFlush);
+
+        int bestLevel = -1;
+        double bestScore = 1.0;
+
+        double score0 = (double) level0.size() / options.getLevel0CompactionTrigger();
+        if (score0 >= bestScore) {
+            bestLevel = 0;
+            bestScore = score0;
+        }
+
+        // last level has nowhere to go.
+        for (int level = 1; level < Math.min(v.levelCount(), options.getNumLevels() - 1); level++) {
+            double score = (double) v.levelBytes(level) / options.getMaxBytesForLevel(level);
+            if (score > bestScore) {
+                bestLevel = level;
+                bestScore = score;
+            }
+        }
+
+        if (bestLevel < 0)
+            return pickTombstones(v, oldestPendingFlush);
+
+        List<SSTable> inputs = new ArrayList<>();
+        if (bestLevel == 0) {
+            inputs.addAll(level0);
+        } else {
+            // oldest data of the level goes down first, it's the least likely to be overwritten again soon. A table that is mostly
+            // deletes goes before it, pushing those down is what lets them meet the data they delete and free the space.
+            List<SSTable> candidates = new ArrayList<>(v.tables(bestLevel));
+            candidates.sort(Comparator.comparingLong(SSTable::getMaxSequence).thenComparingInt(SSTable::getId));
+            SSTable densest = densest(candidates);
+            inputs.add(densest != null ? densest : candidates.get(0));
+
+            // a level left overlapping by another strategy needs every table overlapping the pick, or an older copy of a key would stay above a newer one.
+            if (!v.isDisjoint(bestLevel))
+                expandOverlapping(inputs, candidates);
+        }
+
+        return withNextLevel(v, bestLevel, inputs);
+    }
+
+    /*
+        * Nothing is over target. A tombstone heavy table is rewritten in place when it's already bottommost for its range, otherwise
+          it goes one level down (merged with what it overlaps there) and gets another chance from there, until it reaches the level
+          holding the data it deletes.
+     */
+    private Compaction pickTombstones(Version v, long oldestPendingFlush) {
+        Compaction c = CompactionStrategy.tombstoneCompaction(v, options, oldestPendingFlush);
+        if (c != null)
+            return c;
+
+        SSTable best = null;
+        int bestLevel = -1;
+        for (int level = 1; level < Math.min(v.levelCount(), options.getNumLevels() - 1); level++) {
+            SSTable densest = densest(v.tables(level));
+            if (densest != null && (best == null || densest.getTombstoneRatio() > best.getTombstoneRatio())) {
+                best = densest;
+                bestLevel = level;
+            }
+        }
+        if (best == null)
+            return null;
+
+        List<SSTable> inputs = new ArrayList<>();
+        inputs.add(best);
+        if (!v.isDisjoint(bestLevel))
+            expandOverlapping(inputs, new ArrayList<>(v.tables(bestLevel)));
+        return withNextLevel(v, bestLevel, inputs);
+    }
+
+    // table with the highest tombstone share of at least tombstoneCompactionRatio, null if there is none.
+    private SSTable densest(List<SSTable> tables) {
+        SSTable best = null;
+        for (SSTable sst : tables) {
+            if (sst.getTombstoneCount() == 0 || sst.getTombstoneRatio() < options.getTombstoneCompactionRatio())
+                continue;
+            if (best == null || sst.getTombstoneRatio() > best.getTombstoneRatio())
+                best = sst;
+        }
+        return best;
+    }
+
+    private Compaction withNextLevel(Version v, int level, List<SSTable> inputs) {
+        byte[][] range = keyRange(inputs);
+        List<SSTable> nextInputs = new ArrayList<>();
+        for (SSTable sst : v.tables(level + 1)) {
+            if (range == null || sst.overlapsRange(range[0], range[1]))
+                nextInputs.add(sst);
+        }
+
+        // next level holds older data, so it goes first and level inputs (oldest first) win over it.
+        inputs.sort(Comparator.comparingLong(SSTable::getMaxSequence));
+        nextInputs.sort(Comparator.comparingLong(SSTable::getMaxSequence));
+        List<SSTable> all = new ArrayList<>(nextInputs);
+        all.addAll(inputs);
+
+        return new Compaction(level, level + 1, all, options.getTargetFileSize());
+    }
+
+    /*
+        * Bytes over target in every level, each counted together with the share of the next level it will be merged with.
+     */
+    @Override
+    public long pendingCompactionBytes(Version v) {
+        long pending = 0;
+        if (v.tables(0).size() >= options.getLevel0CompactionTrigger())
+            pending += v.levelBytes(0) + v.levelBytes(1);
+
+        for (int level = 1; level < Math.min(v.levelCount(), options.getNumLevels() - 1); level++) {
+            long bytes = v.levelBytes(level);
+            long excess = bytes - options.getMaxBytesForLevel(level);
+            if (excess <= 0)
+                continue;
+            double fanout = (double) v.levelBytes(level + 1) / bytes;
+            pending += (long) (excess * (1 + fanout));
+        }
+        return pending;
+    }
+
+    private static void expandOverlapping(List<SSTable> inputs, List<SSTable> candidates) {
+        boolean grew = true;
+        while (grew) {
+            grew = false;
+            byte[][] range = keyRange(inputs);
+            for (SSTable sst : candidates) {
+                if (!inputs.contains(sst) && (range == null || sst.overlapsRange(range[0], range[1]))) {
+                    inputs.add(sst);
+                    grew = true;
+                }
+            }
+        }
+    }
+
+    /*
+        * Smallest and biggest key over tables, null if one of them has no known range (then it overlaps everything).
+     */
+    private static byte[][] keyRange(List<SSTable> tables) {
+        byte[] lo = null, hi = null;
+        for (SSTable sst : tables) {
+            if (sst.minKeyBytes() == null)
+                return null;
+            if (sst.getEntryCount() == 0)
+                continue;
+            if (lo == null || SSTable.compareKeys(sst.minKeyBytes(), lo) < 0)
+                lo = sst.minKeyBytes();
+            if (hi == null || SSTable.compareKeys(sst.maxKeyBytes(), hi) > 0)
+                hi = sst.maxKeyBytes();
+        }
+        if (lo == null)
+            return new byte[][]{new byte[0], new byte[0]};
+        return new byte[][]{lo, hi};
+    }
+}
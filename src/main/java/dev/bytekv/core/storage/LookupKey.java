@@ -0,0 +1,36 @@
+package dev.bytekv.core.storage;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+    * A point lookup walks through several tables for the same key. LookupKey carries everything derived from the key, its bloom hash
+      and its UTF-8 bytes, so they are computed once per get instead of once per table. Bytes are encoded on first use: a get answered
+      by the memtable never needs them, one that reaches the tables always does, since key range pruning (Version.findTable,
+      SSTable.mayContainKey) compares them before any filter is probed.
+ */
+
+public final class LookupKey {
+
+    private final String key;
+    private final long hash;
+    private byte[] bytes;
+
+    public LookupKey(String key) {
+        this.key = key;
+        this.hash = BloomFilter.hash(key);
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public long hash() {
+        return hash;
+    }
+
+    public byte[] bytes() {
+        if (bytes == null)
+            bytes = key.getBytes(StandardCharsets.UTF_8);
+        return bytes;
+    }
+}
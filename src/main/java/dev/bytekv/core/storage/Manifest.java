@@ -0,0 +1,247 @@
+package dev.bytekv.core.storage;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/*
+    * MANIFEST is an append only log of VersionEdits. Every flush and compaction appends its edit (and fsyncs) before the new Version is
+      published, so on restart replaying the log gives back exactly which tables are live and in which level, without listing the
+      SST folder or guessing levels.
+
+    * record = payloadLength(int) | crc32 of the length(int) | crc32 of the payload(int) | payload. A crash in the middle of an append
+      leaves a short or corrupt last record, replay simply stops there since that edit was never acknowledged. A corrupt record with
+      more data behind it is something else (edits after it would be lost, and with them the tables they added), replay refuses to
+      open such a manifest instead of guessing.
+
+    * The length has a checksum of its own because it decides where the record ends: a flipped bit in it would otherwise look just
+      like a torn last record (a length running past the end of the file) and replay would quietly drop every edit behind it. With the
+      length checked, running past the end only ever means the payload didn't make it to disk. A header that fails its check is only
+      taken for a torn tail when nothing but zeros follows it, which is what a crashed append can leave behind on some filesystems.
+
+    * An append that fails halfway (disk full, EIO on fsync) must not leave its torn record in the log, or every later append would
+      land behind it and be ignored on the next start. So the log is cut back to where the last good record ended. If even that fails
+      the manifest fails closed: every later append throws and no new table is ever published on top of a log that can't be trusted.
+
+    * Log only grows, so once it crosses MAX_MANIFEST_SIZE it is rewritten as a single snapshot edit of the current Version
+      (written to MANIFEST.tmp and renamed over, so there is always one complete manifest on disk).
+ */
+
+public class Manifest {
+
+    static final String FILE_NAME = "MANIFEST";
+    private static final long MAX_MANIFEST_SIZE = 4L * 1024 * 1024;
+    private static final int HEADER_SIZE = 12;
+    private static final boolean WINDOWS = System.getProperty("os.name", "").startsWith("Windows");
+
+    private final File file;
+    private FileOutputStream fos;
+    private DataOutputStream out;
+    // length of the log up to the end of its last good record.
+    private long size;
+    // set when a failed append couldn't be cut back, see append.
+    private IOException broken;
+
+    public Manifest(File dir) {
+        this.file = new File(dir, FILE_NAME);
+    }
+
+    public boolean exists() {
+        return file.exists();
+    }
+
+    /*
+        * Reads every complete edit in the log, oldest first.
+     */
+    public List<VersionEdit> replay() throws IOException {
+        List<VersionEdit> edits = new ArrayList<>();
+        if (!file.exists())
+            return edits;
+
+        CRC32 crc = new CRC32();
+        long fileLength = file.length();
+        long offset = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            // anything shorter than a header is a header cut short.
+            while (fileLength - offset >= HEADER_SIZE) {
+                int length = in.readInt();
+                int lengthChecksum = in.readInt();
+                int checksum = in.readInt();
+
+                if (lengthChecksum(crc, length) != lengthChecksum) {
+                    if (!zerosFrom(offset))
+                        throw new IOException("MANIFEST has a corrupt record header after " + edits.size() + " edits with "
+                                + (fileLength - offset) + " bytes from it on, refusing to recover from it");
+                    break;
+                }
+                long end = offset + HEADER_SIZE + length;
+                if (end > fileLength)
+                    break;
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    if (end < fileLength)
+                        throw new IOException("MANIFEST has a corrupt record after " + edits.size() + " edits with "
+                                + (fileLength - end) + " more bytes behind it, refusing to recover from it");
+                    break;
+                }
+                edits.add(VersionEdit.decode(payload));
+                offset = end;
+            }
+        }
+        if (offset < fileLength)
+            System.out.println("MANIFEST has a torn last record after " + edits.size() + " edits, ignoring it");
+        return edits;
+    }
+
+    private static int lengthChecksum(CRC32 crc, int length) {
+        crc.reset();
+        crc.update(length >>> 24);
+        crc.update(length >>> 16);
+        crc.update(length >>> 8);
+        crc.update(length);
+        return (int) crc.getValue();
+    }
+
+    // only read when a header fails its check, so the extra pass over the tail is rare.
+    private boolean zerosFrom(long offset) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            in.skipNBytes(offset);
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b != 0)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized void append(VersionEdit edit) throws IOException {
+        if (broken != null)
+            throw new IOException("MANIFEST is unusable since an earlier append failed", broken);
+        if (out == null)
+            openForAppend();
+
+        try {
+            writeRecord(out, edit);
+            out.flush();
+            fos.getFD().sync();
+        } catch (IOException e) {
+            cutBack(e);
+            throw e;
+        }
+        size = fos.getChannel().size();
+    }
+
+    /*
+        * Drops whatever a failed append got into the file. The buffered stream is thrown away too, it may still hold part of the
+          record and would write it out on the next flush.
+     */
+    private void cutBack(IOException cause) {
+        out = null;
+        try (FileOutputStream failed = fos) {
+            fos = null;
+            FileChannel channel = failed.getChannel();
+            channel.truncate(size);
+            channel.force(true);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            broken = cause;
+            System.out.println("MANIFEST could not be cut back to " + size + " bytes after a failed append, no more edits will be logged");
+        }
+    }
+
+    public synchronized boolean needsRewrite() {
+        return size > MAX_MANIFEST_SIZE;
+    }
+
+    /*
+        * Replaces the whole log with one edit describing tables (the current Version).
+     */
+    public synchronized void rewrite(Collection<VersionEdit.TableMeta> tables, int lastTableId) throws IOException {
+        if (broken != null)
+            throw new IOException("MANIFEST is unusable since an earlier append failed", broken);
+        VersionEdit snapshot = new VersionEdit().setLastTableId(lastTableId);
+        for (VersionEdit.TableMeta meta : tables)
+            snapshot.addTable(meta);
+
+        File tmp = new File(file.getParentFile(), FILE_NAME + ".tmp");
+        try (FileOutputStream tmpFos = new FileOutputStream(tmp);
+             DataOutputStream tmpOut = new DataOutputStream(new BufferedOutputStream(tmpFos))) {
+            writeRecord(tmpOut, snapshot);
+            tmpOut.flush();
+            tmpFos.getFD().sync();
+        }
+
+        close();
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // the rename itself is only durable once the directory is.
+        syncDirectory(file.getParentFile());
+        openForAppend();
+    }
+
+    /*
+        * fsyncs a directory, so files created, renamed or deleted in it survive a crash and not just their contents.
+
+        * Windows can't open a directory as a file at all (AccessDeniedException), and there's nothing to fsync there anyway: NTFS
+          journals the directory entry itself. So on Windows a failed open is skipped instead of failing every flush. Anywhere else it
+          still throws, as does a failed force.
+     */
+    static void syncDirectory(File dir) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            if (WINDOWS)
+                return;
+            throw e;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    private void openForAppend() throws IOException {
+        file.getParentFile().mkdirs();
+        boolean created = !file.exists();
+        fos = new FileOutputStream(file, true);
+        out = new DataOutputStream(new BufferedOutputStream(fos));
+        size = fos.getChannel().size();
+        if (created)
+            syncDirectory(file.getParentFile());
+    }
+
+    private static void writeRecord(DataOutputStream dos, VersionEdit edit) throws IOException {
+        byte[] payload = edit.encode();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        int checksum = (int) crc.getValue();
+
+        dos.writeInt(payload.length);
+        dos.writeInt(lengthChecksum(crc, payload.length));
+        dos.writeInt(checksum);
+        dos.write(payload);
+    }
+
+    public synchronized void close() {
+        if (out == null)
+            return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+        out = null;
+        fos = null;
+    }
+}
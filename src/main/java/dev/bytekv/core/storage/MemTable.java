@@ -1,85 +1,438 @@
 package dev.bytekv.core.storage;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.io.*;
 
 import dev.bytekv.core.WALWriter;
+import dev.bytekv.log.LogEntry;
+
+/*
+    * Writes land in the active memtable. Once it takes about writeBufferSize bytes it is sealed: it becomes immutable, a fresh one takes
+      its place and a flush thread writes the sealed one out. Sealed memtables stay in the read path (newest first, after the active
+      one) until their SSTable is installed, so a key never disappears from reads while its flush is running.
+
+    * Flushes run on a fixed pool of maxBackgroundFlushes threads. At most maxImmutableMemTables sealed memtables may exist at once,
+      beyond that writes stop (WriteController) until a flush is done, so a write burst can't pile up memory faster than disk takes it.
+
+    * A sealed memtable leaves the read path only once it and every older one are flushed. With more than one flush thread a newer
+      one can finish first, and dropping it right away would let reads find older data of a still listed memtable before its table.
+
+    * Entries live in a MemTableRep (StorageOptions.memTableRep): a skip list of Strings on heap or an off heap arena. Sealing is
+      driven by the rep's memory use, so a memtable of tiny keys and one of 1MB values both flush at about the same memory. If
+      StorageOptions has a WriteBufferManager, the memtable also counts against that shared budget and may get sealed early when
+      another store needs the room.
+
+    * Writers don't lock. Every write gets a sequence number, reps keep the write with the bigger one when two writers race on a
+      key. A writer registers on the active memtable before taking its sequence and checks afterwards that it's still the active
+      one (else it retries on the new one), and a flush waits for registered writers to finish before reading its memtable. So no
+      write lands in a memtable that is already being flushed, and every sequence in a sealed memtable is smaller than any in a
+      newer one: reading memtables newest first finds the newest write.
+
+    * Every memtable logs its writes to a WAL segment of its own (see WALWriter), the segment is deleted once the memtable is
+      retired. A writer logs after it registered on its memtable, so its write is in the segment of the memtable it lands in.
+      Records carry the write's sequence and expiry, replay (see LogRestorer) puts them back in sequence order.
+
+    * Tradeoffs:
+    - Every sealed memtable is one more map a read has to check before going to disk.
+ */
 
 public class MemTable {
 
-    private static final int DEFAULT_FLUSH_THRESHOLD = 2500;
-    private static final String TOMBSTONE = "__<deleted>__";
+    private static final long FLUSH_RETRY_MIN_MILLIS = 1000;
+    private static final long FLUSH_RETRY_MAX_MILLIS = 30_000;
+    // longest a flush parks between checks for writers still in its memtable, the last one out wakes it sooner.
+    private static final long WRITERS_PARK_NANOS = 1_000_000;
+
+    /*
+        * What SSTable.get hands back for a deleted key. Memtables keep deletes and expiry out of band (see MemTableRep.Stored),
+          this string is only ever compared by identity, so a user value that reads the same is still just a value.
+     */
+    static final String TOMBSTONE = new String("__<deleted>__");
+
+    private volatile Buffer active;
+    private final AtomicLong lastSequence = new AtomicLong();
+    // sealed memtables newest first, replaced as a whole (copy on write) under this.
+    private volatile List<Sealed> immutables = Collections.emptyList();
 
-    private final ConcurrentSkipListMap<String, String> buffer = new ConcurrentSkipListMap<>();
     private final SSTManager sstManager;
-    private final int flushThreshold;
+    private final long writeBufferSize;
+    private final int maxEntries;
+    private final int maxImmutable;
+    private final MemTableRep.Type repType;
+    private final WriteBufferManager writeBufferManager;
+    private final ExecutorService flushExecutor;
 
     private WALWriter walWriter;
+    // WAL segment of the next memtable, see Buffer.segment.
+    private final AtomicLong nextSegment;
 
     public MemTable(SSTManager sstManager, WALWriter walWriter) {
-        this(sstManager, DEFAULT_FLUSH_THRESHOLD, walWriter);
+        this(sstManager, 0, walWriter);
     }
 
-    public MemTable(SSTManager sstManager, int flushThreshold, WALWriter walWriter) {
+    /*
+        * maxEntries also seals a memtable once it holds that many entries, whatever their size. 0 means size only.
+     */
+    public MemTable(SSTManager sstManager, int maxEntries, WALWriter walWriter) {
         this.sstManager = sstManager;
-        this.flushThreshold = flushThreshold;
+        this.maxEntries = maxEntries;
         this.walWriter = walWriter;
+        this.writeBufferSize = sstManager.getOptions().getWriteBufferSize();
+        this.maxImmutable = sstManager.getOptions().getMaxImmutableMemTables();
+        this.writeBufferManager = sstManager.getOptions().getWriteBufferManager();
+        this.repType = sstManager.getOptions().getMemTableRep();
+        this.nextSegment = new AtomicLong(walWriter == null ? 0 : walWriter.getLastSegment());
+        this.active = newBuffer();
+        if (writeBufferManager != null)
+            writeBufferManager.register(this);
+
+        AtomicInteger threads = new AtomicInteger();
+        this.flushExecutor = Executors.newFixedThreadPool(sstManager.getOptions().getMaxBackgroundFlushes(), r -> {
+            Thread t = new Thread(r, "memtable-flush-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /*
+        * Returns the write's sequence number, callers keeping derived state (like a cache) use it to order concurrent writes the
+          same way the memtable did.
+     */
+    public long put(String key, String value) throws IOException {
+        return put(key, value, 0);
+    }
+
+    /*
+        * Put that reads stop returning once expiresAt (epoch millis) has passed, 0 never expires. Compaction drops it from disk later
+          (TtlCompactionFilter).
+     */
+    public long put(String key, String value, long expiresAt) throws IOException {
+        if (value == null)
+            throw new IllegalArgumentException("null value, use delete");
+        return write(key, value, expiresAt, true);
+    }
+
+    /*
+        * Always writes a tombstone, the key may well live in a sealed memtable or an SSTable only. Returns the sequence like put.
+     */
+    public long delete(String key) throws IOException {
+        return write(key, null, 0, true);
     }
 
-    public void put(String key, String value) throws IOException {
-        buffer.put(key, value);
-        if (buffer.size() >= flushThreshold)
-            swapAndFlush();
+    /*
+        * Applies a write read back from the WAL at startup (value null for a delete). It isn't logged again: the segment it came
+          from is only deleted once the replayed memtables are flushed.
+     */
+    public long replay(String key, String value, long expiresAt) throws IOException {
+        return write(key, value, expiresAt, false);
     }
 
-    public String delete(String key) throws IOException {
-        if (!buffer.containsKey(key))
-            return "NO KEY FOUND";
+    private long write(String key, String value, long expiresAt, boolean log) throws IOException {
+        checkKey(key);
+        Buffer buffer;
+        long sequence;
+        while (true) {
+            buffer = active;
+            buffer.writers.incrementAndGet();
+            sequence = lastSequence.incrementAndGet();
+            if (active == buffer)
+                break;
+            // sealed meanwhile, the sequence may be older than writes already in the new memtable, so take a new one there.
+            buffer.leave();
+        }
+
+        long delta;
+        try {
+            if (log && walWriter != null) {
+                LogEntry entry = value == null
+                        ? new LogEntry(LogEntry.Operation.DELETE, key, null, 0, sequence)
+                        : new LogEntry(LogEntry.Operation.PUT, key, value, expiresAt, sequence);
+                walWriter.writeToLog(buffer.segment, entry.toProto());
+            }
+            delta = buffer.rep.put(key, value, expiresAt, sequence);
+        } finally {
+            buffer.leave();
+        }
+        if (writeBufferManager != null)
+            writeBufferManager.reserve(delta);
 
-        buffer.put(key, TOMBSTONE);
-        if (buffer.size() >= flushThreshold)
-            swapAndFlush();
+        MemTableRep rep = buffer.rep;
+        if (rep.approximateMemoryUsage() >= writeBufferSize || (maxEntries > 0 && rep.size() >= maxEntries))
+            swapAndFlush(buffer);
+        else if (writeBufferManager != null && writeBufferManager.shouldFlush())
+            writeBufferManager.flushLargest();
+        return sequence;
+    }
 
-        return "OK!";
+    /*
+        * Estimated bytes held by the active memtable, sealed ones not included.
+     */
+    public long getApproximateMemoryUsage() {
+        return active.rep.approximateMemoryUsage();
     }
 
     public String get(String key) throws IOException {
-        String val = buffer.get(key);
-        if (TOMBSTONE.equals(val)) return null;
-        if (val != null) return val;
-
-        for (SSTable table : sstManager.getAllSSTables()) {
-            val = table.get(key);
-            if (TOMBSTONE.equals(val)) return null;
-            if (val != null) return val;
+        if (key == null)
+            throw new IllegalArgumentException("null key");
+        // put and delete refuse such a key (see checkKey), so it was never written and there is nothing to find.
+        if (unpairedSurrogate(key) >= 0)
+            return null;
+        // active one is read before the list: sealing publishes the list first, so a memtable is always in at least one of them.
+        MemTableRep.Stored stored = active.rep.get(key);
+        if (stored == null) {
+            for (Sealed sealed : immutables) {
+                stored = sealed.buffer.rep.get(key);
+                if (stored != null)
+                    break;
+            }
+        }
+        if (stored != null) {
+            if (stored.isTombstone())
+                return null;
+            // an expired value hides older ones just like a delete would.
+            if (stored.expiresAt != 0 && stored.expiresAt <= System.currentTimeMillis())
+                return null;
+            return stored.value;
+        }
+
+        // hash and bytes of key are computed once here and reused by every table below.
+        LookupKey lookup = new LookupKey(key);
+        // pinned Version keeps every table it lists open until we are done, even if compaction replaces them meanwhile.
+        // It's taken after the memtables, a memtable leaves the list only once its table is in the current Version.
+        Version version = sstManager.acquireVersion();
+        try {
+            for (SSTable table : version.tablesForKey(lookup)) {
+                String val = table.get(lookup);
+                if (val == TOMBSTONE) return null;
+                if (val != null) return val;
+            }
+        } finally {
+            version.release();
         }
         return null;
     }
 
-    private void swapAndFlush() {
-        TreeMap<String, String> snapShot;
+    /*
+        * Keys are stored as UTF-8 and ordered by it. An unpaired surrogate has no UTF-8 form (it gets written as '?'), so such a key
+          would sort in memory by one string and on disk by another, and could read the value of a different key. Writes reject it
+          up front, a get of it just misses.
+     */
+    static void checkKey(String key) {
+        if (key == null)
+            throw new IllegalArgumentException("null key");
+        int bad = unpairedSurrogate(key);
+        if (bad >= 0)
+            throw new IllegalArgumentException("key has an unpaired surrogate at index " + bad);
+    }
+
+    // index of the first unpaired surrogate in key, -1 if there is none.
+    static int unpairedSurrogate(String key) {
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (!Character.isSurrogate(c))
+                continue;
+            if (Character.isHighSurrogate(c) && i + 1 < key.length() && Character.isLowSurrogate(key.charAt(i + 1)))
+                i++;
+            else
+                return i;
+        }
+        return -1;
+    }
+
+    // called by WriteBufferManager when another memtable's write found the shared budget used up.
+    void scheduleFlush() throws InterruptedIOException {
+        swapAndFlush(null);
+    }
+
+    /*
+        * Seals the active memtable and queues its flush. Waits while maxImmutableMemTables are already sealed, writers normally
+          stall in WriteController before getting here. With expected set, only seals if that is still the active memtable: writers
+          that all found the same memtable full seal it once, not once each, and the ones that lost don't wait for a flush at all.
+     */
+    private void swapAndFlush(Buffer expected) throws InterruptedIOException {
+        Sealed sealed;
         synchronized (this) {
-            if (buffer.isEmpty())
+            if ((expected != null && active != expected) || active.rep.isEmpty())
+                return;
+            while (immutables.size() >= maxImmutable) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting for a memtable flush");
+                }
+            }
+            // somebody else may have sealed it while we waited.
+            if ((expected != null && active != expected) || active.rep.isEmpty())
                 return;
-            snapShot = new TreeMap<>(buffer);
-            buffer.clear();
+
+            sealed = new Sealed(sstManager.reserveFlushId(), active);
+            List<Sealed> next = new ArrayList<>(immutables.size() + 1);
+            next.add(sealed);
+            next.addAll(immutables);
+            immutables = Collections.unmodifiableList(next);
+            active = newBuffer();
+            // moved out of active together with the swap, so the budget never sees it as active once a new memtable took over.
+            sealed.bytes = sealed.buffer.rep.approximateMemoryUsage();
+            if (writeBufferManager != null)
+                writeBufferManager.sealed(sealed.bytes);
+            sstManager.getWriteController().updateMemTables(next.size());
         }
-        new Thread(() -> {
-            try {
-                sstManager.flushToSSTable(snapShot);
-                walWriter.truncateWALFile();
-            } catch (IOException e) {
-                e.printStackTrace();
+        flushExecutor.submit(() -> runFlush(sealed));
+    }
+
+    /*
+        * A failed flush is retried with backoff for as long as it takes, the memtable stays sealed and readable meanwhile. Writes stay
+          stopped once enough of them queue up, same as when compaction can't keep up.
+     */
+    private void runFlush(Sealed sealed) {
+        long backoff = FLUSH_RETRY_MIN_MILLIS;
+        try {
+            // writers that registered before the swap are one put away from done, but that put may wait on a full WAL queue for a
+            // while, so park instead of spinning. The last writer out unparks us (Buffer.leave).
+            sealed.buffer.flusher = Thread.currentThread();
+            while (sealed.buffer.writers.get() != 0)
+                LockSupport.parkNanos(WRITERS_PARK_NANOS);
+            sealed.buffer.flusher = null;
+            // what they added still got reserved as active, move that over as well.
+            long late = sealed.buffer.rep.approximateMemoryUsage() - sealed.bytes;
+            if (late != 0) {
+                sealed.bytes += late;
+                if (writeBufferManager != null)
+                    writeBufferManager.sealed(late);
+            }
+
+            while (true) {
+                try {
+                    sstManager.flushToSSTable(sealed.id, sealed.buffer.rep);
+                    sealed.failure = null;
+                    // its WAL segment goes once it retires, see retireFlushed.
+                    sealed.flushed = true;
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    sealed.failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                    System.err.println("Flush of memtable " + sealed.id + " failed, retrying in " + backoff + "ms: " + e);
+                    synchronized (this) {
+                        notifyAll();
+                    }
+                }
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(backoff * 2, FLUSH_RETRY_MAX_MILLIS);
             }
-        }).start();
+        } finally {
+            synchronized (this) {
+                retireFlushed();
+                notifyAll();
+            }
+        }
     }
 
-    public synchronized void flush() throws IOException {
-        if (buffer.isEmpty()) 
+    // drops flushed memtables from the oldest end, stops at the first one still waiting.
+    private void retireFlushed() {
+        List<Sealed> next = new ArrayList<>(immutables);
+        while (!next.isEmpty() && next.get(next.size() - 1).flushed) {
+            Sealed retired = next.remove(next.size() - 1);
+            // readers that picked up the old list may still be in its rep, so the rep is only dropped, never emptied.
+            if (writeBufferManager != null)
+                writeBufferManager.free(retired.bytes);
+            // retired oldest first, so segments are deleted in the order they were written too.
+            if (walWriter != null)
+                walWriter.deleteSegment(retired.buffer.segment);
+        }
+        if (next.size() == immutables.size())
             return;
-        TreeMap<String, String> snapShot = new TreeMap<>(buffer);
-        buffer.clear();
-        sstManager.flushToSSTable(snapShot);
+        immutables = Collections.unmodifiableList(next);
+        sstManager.getWriteController().updateMemTables(next.size());
+    }
+
+    /*
+        * Seals whatever is in the active memtable and waits until every sealed memtable is on disk. Throws as soon as one of
+          them fails to flush (it keeps being retried in the background).
+     */
+    public void flush() throws IOException {
+        swapAndFlush(null);
+        synchronized (this) {
+            while (!immutables.isEmpty()) {
+                for (Sealed sealed : immutables) {
+                    IOException failure = sealed.failure;
+                    if (failure != null)
+                        throw failure;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while waiting for memtable flushes");
+                }
+            }
+        }
+    }
+
+    /*
+        * Flushes what is left and stops counting against the shared write buffer budget. The memtable must not be written to afterwards.
+     */
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            if (writeBufferManager != null)
+                writeBufferManager.unregister(this);
+            flushExecutor.shutdown();
+        }
+    }
+
+    private Buffer newBuffer() {
+        return new Buffer(repType.create(sstManager.getOptions()), nextSegment.incrementAndGet());
+    }
+
+    private static final class Buffer {
+        final MemTableRep rep;
+        // WAL segment holding exactly this memtable's writes.
+        final long segment;
+        // writers between registering and finishing their put.
+        final AtomicInteger writers = new AtomicInteger();
+        // flush waiting for writers to leave, see runFlush.
+        volatile Thread flusher;
+
+        Buffer(MemTableRep rep, long segment) {
+            this.rep = rep;
+            this.segment = segment;
+        }
+
+        /*
+            * A writer is done with this buffer. flusher is set before runFlush reads writers and read here after the decrement, so
+              either the flush sees 0 or the last writer sees the flush. The park is bounded anyway.
+         */
+        void leave() {
+            if (writers.decrementAndGet() != 0)
+                return;
+            Thread waiting = flusher;
+            if (waiting != null)
+                LockSupport.unpark(waiting);
+        }
+    }
+
+    private static final class Sealed {
+        final int id;
+        final Buffer buffer;
+        // size at the swap, topped up by the flush once the last writer is out.
+        volatile long bytes;
+        volatile boolean flushed = false;
+        volatile IOException failure;
+
+        Sealed(int id, Buffer buffer) {
+            this.id = id;
+            this.buffer = buffer;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+package dev.bytekv.core.storage;
+
+/*
+    * What a memtable keeps its entries in. MemTable owns sealing, flushing and the read path, a rep only stores key -> value with
+      its expiry (or a delete), answers point lookups and hands its entries to a flush in key order.
+
+    * Deletes and expiry are kept next to the value, never inside it, so a user value can hold any string at all.
+
+    * Reps must allow any number of readers and writers at once. Once sealed a rep is only read. There is no close: readers that got
+      hold of a sealed rep may still be in it after its flush, so a rep is just dropped and whatever it holds goes with the last of them.
+ */
+
+public interface MemTableRep {
+
+    /*
+        * Stores value for key unless the rep already has a write of key with a bigger sequence, concurrent writers of one key may
+          arrive in any order and the newest write still wins. value null stores a delete, expiresAt (epoch millis) is 0 for a value
+          that never expires. Returns how many bytes the rep grew by (may be negative or 0).
+     */
+    long put(String key, String value, long expiresAt, long sequence);
+
+    // newest write of key, null if the rep doesn't have one.
+    Stored get(String key);
+
+    // distinct keys.
+    int size();
+
+    boolean isEmpty();
+
+    // bytes the rep holds on to, estimated or counted depending on the rep.
+    long approximateMemoryUsage();
+
+    /*
+        * Entries in unsigned byte order of their UTF-8 keys (the order SSTables use), values already split into type, expiry and
+          user value. Only used on a sealed rep.
+     */
+    TableIterator iterator();
+
+    /*
+        * A write as a rep holds it. value is null for a delete.
+     */
+    class Stored {
+        final String value;
+        final long expiresAt;
+
+        Stored(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isTombstone() {
+            return value == null;
+        }
+    }
+
+    enum Type {
+        // ConcurrentSkipListMap of Strings on heap. Simple, cheap for small write buffers.
+        SKIP_LIST,
+        // keys, values and the skip list itself in off-heap chunks, almost nothing on heap per entry. For big write buffers.
+        ARENA;
+
+        public MemTableRep create(StorageOptions options) {
+            switch (this) {
+                case ARENA:
+                    return new ArenaMemTableRep(ArenaMemTableRep.chunkSizeFor(options.getWriteBufferSize()));
+                case SKIP_LIST:
+                default:
+                    return new SkipListMemTableRep();
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package dev.bytekv.core.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/*
+    * Merges several TableIterators into one stream in key order, yielding only the newest version of every key. Children are passed
+      oldest first, so on equal keys the child with the bigger index wins and the older copies are skipped.
+
+    * The heap is a plain int[] of child indexes ordered by each child's current key, compared as bytes right inside the children's
+      buffers. Per entry there is no String, no record object and no heap node allocated, the only copy is the last returned key, kept
+      in one reused array to recognise shadowed versions.
+ */
+
+public final class MergingIterator implements TableIterator {
+
+    private final TableIterator[] children;
+    private final int[] heap;
+    private int heapSize = 0;
+
+    private TableIterator current;
+    private boolean started = false;
+
+    private byte[] lastKey = new byte[64];
+    private int lastKeyLength = -1;
+    private ByteBuffer lastKeyBuffer = ByteBuffer.wrap(lastKey);
+
+    public MergingIterator(List<TableIterator> children) {
+        this.children = children.toArray(new TableIterator[0]);
+        this.heap = new int[this.children.length];
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (!started) {
+            started = true;
+            for (int i = 0; i < children.length; i++) {
+                if (children[i].next())
+                    push(i);
+            }
+        } else if (current != null) {
+            // current was left on top of the heap, move it past the entry just returned.
+            advanceTop();
+        }
+
+        // drop older versions of the key returned last time.
+        while (heapSize > 0 && lastKeyLength >= 0 && compareToLast(children[heap[0]]) == 0)
+            advanceTop();
+
+        if (heapSize == 0) {
+            current = null;
+            return false;
+        }
+
+        current = children[heap[0]];
+        rememberKey(current);
+        return true;
+    }
+
+    private void advanceTop() throws IOException {
+        if (children[heap[0]].next()) {
+            siftDown(0);
+        } else {
+            heap[0] = heap[--heapSize];
+            if (heapSize > 0)
+                siftDown(0);
+        }
+    }
+
+    private void rememberKey(TableIterator it) {
+        int len = it.keyLength();
+        if (len > lastKey.length) {
+            lastKey = new byte[Math.max(len, lastKey.length * 2)];
+            lastKeyBuffer = ByteBuffer.wrap(lastKey);
+        }
+        it.buffer().get(it.keyOffset(), lastKey, 0, len);
+        lastKeyLength = len;
+    }
+
+    private int compareToLast(TableIterator it) {
+        return TableIterator.compareKeys(it.buffer(), it.keyOffset(), it.keyLength(), lastKeyBuffer, 0, lastKeyLength);
+    }
+
+    // smaller key first, on equal keys the newer child (bigger index) first.
+    private boolean less(int a, int b) {
+        TableIterator x = children[a], y = children[b];
+        int cmp = TableIterator.compareKeys(x.buffer(), x.keyOffset(), x.keyLength(), y.buffer(), y.keyOffset(), y.keyLength());
+        return cmp < 0 || (cmp == 0 && a > b);
+    }
+
+    private void push(int child) {
+        int i = heapSize++;
+        heap[i] = child;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(heap[i], heap[parent]))
+                break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= heapSize)
+                return;
+            int smallest = left;
+            int right = left + 1;
+            if (right < heapSize && less(heap[right], heap[left]))
+                smallest = right;
+            if (!less(heap[smallest], heap[i]))
+                return;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int t = heap[i];
+        heap[i] = heap[j];
+        heap[j] = t;
+    }
+
+    @Override
+    public ByteBuffer buffer() {
+        return current.buffer();
+    }
+
+    @Override
+    public int keyOffset() {
+        return current.keyOffset();
+    }
+
+    @Override
+    public int keyLength() {
+        return current.keyLength();
+    }
+
+    @Override
+    public int valueOffset() {
+        return current.valueOffset();
+    }
+
+    @Override
+    public int valueLength() {
+        return current.valueLength();
+    }
+
+    @Override
+    public boolean isTombstone() {
+        return current.isTombstone();
+    }
+
+    @Override
+    public long expiresAt() {
+        return current.expiresAt();
+    }
+
+    @Override
+    public void close() {
+        for (TableIterator child : children)
+            child.close();
+    }
+}
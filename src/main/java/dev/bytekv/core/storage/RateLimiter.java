@@ -0,0 +1,160 @@
+package dev.bytekv.core.storage;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+    * Token bucket limiting how fast flushes and compactions write table files, so background writes can't eat the whole disk and
+      push foreground reads into p99 spikes. Tokens are bytes, refilled continuously at bytesPerSecond, and the bucket holds at most
+      REFILL_PERIOD worth of them, so after an idle stretch a writer still can't burst more than that.
+
+    * Flushes ask with HIGH priority and compactions with LOW. While any HIGH request is waiting, LOW requests don't get tokens,
+      a memtable waiting to be flushed blocks writers and compaction can always catch up a bit later.
+
+    * With autoTune the configured rate is a ceiling. SSTManager reports pending compaction bytes after every flush/compaction and the
+      rate follows that debt: enough to pay it off in AUTO_TUNE_CATCH_UP, never under a quarter of the ceiling.
+
+    * Tradeoffs:
+    - Throttling compaction too hard lets level 0 grow, which hurts reads in a different way, that's what autoTune is for.
+ */
+
+public class RateLimiter {
+
+    public enum Priority { HIGH, LOW }
+
+    private static final long REFILL_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long AUTO_TUNE_CATCH_UP_SECONDS = 10;
+
+    private final long maxBytesPerSecond;
+    private final boolean autoTune;
+    private volatile long bytesPerSecond;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition refilled = lock.newCondition();
+    private double available;
+    private long lastRefill = System.nanoTime();
+    private int highWaiting = 0;
+
+    private final AtomicLong[] bytesThrough = {new AtomicLong(), new AtomicLong()};
+    private final AtomicLong[] throttleNanos = {new AtomicLong(), new AtomicLong()};
+
+    public RateLimiter(long bytesPerSecond) {
+        this(bytesPerSecond, false);
+    }
+
+    public RateLimiter(long bytesPerSecond, boolean autoTune) {
+        if (bytesPerSecond <= 0)
+            throw new IllegalArgumentException("bytesPerSecond must be positive");
+        this.maxBytesPerSecond = bytesPerSecond;
+        this.autoTune = autoTune;
+        this.bytesPerSecond = autoTune ? bytesPerSecond / 4 : bytesPerSecond;
+    }
+
+    /*
+        * Blocks until bytes may be written. Big requests are taken in bucket sized pieces, so one huge write can't lock everyone
+          else out for seconds.
+     */
+    public void request(long bytes, Priority priority) throws InterruptedIOException {
+        long start = System.nanoTime();
+        long remaining = bytes;
+
+        lock.lock();
+        try {
+            if (priority == Priority.HIGH)
+                highWaiting++;
+            try {
+                while (remaining > 0) {
+                    refill();
+                    long burst = burst();
+                    long want = Math.min(remaining, burst);
+
+                    if ((priority == Priority.HIGH || highWaiting == 0) && available >= want) {
+                        available -= want;
+                        remaining -= want;
+                        continue;
+                    }
+
+                    long waitNanos = priority == Priority.LOW && highWaiting > 0
+                            ? REFILL_PERIOD_NANOS
+                            : (long) ((want - available) * 1_000_000_000L / bytesPerSecond) + 1;
+                    refilled.awaitNanos(waitNanos);
+                }
+            } finally {
+                if (priority == Priority.HIGH) {
+                    highWaiting--;
+                    refilled.signalAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for rate limiter");
+        } finally {
+            lock.unlock();
+            long waited = System.nanoTime() - start;
+            bytesThrough[priority.ordinal()].addAndGet(bytes - remaining);
+            throttleNanos[priority.ordinal()].addAndGet(waited);
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(burst(), available + (now - lastRefill) * (double) bytesPerSecond / 1_000_000_000L);
+        lastRefill = now;
+    }
+
+    private long burst() {
+        return Math.max(1, bytesPerSecond * REFILL_PERIOD_NANOS / 1_000_000_000L);
+    }
+
+    /*
+        * Called by SSTManager with current compaction debt. No op unless autoTune is on.
+     */
+    public void tune(long pendingCompactionBytes) {
+        if (!autoTune)
+            return;
+        long wanted = pendingCompactionBytes / AUTO_TUNE_CATCH_UP_SECONDS;
+        long rate = Math.max(maxBytesPerSecond / 4, Math.min(maxBytesPerSecond, wanted));
+
+        lock.lock();
+        try {
+            refill();
+            bytesPerSecond = Math.max(1, rate);
+            refilled.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public long getMaxBytesPerSecond() {
+        return maxBytesPerSecond;
+    }
+
+    public boolean isAutoTune() {
+        return autoTune;
+    }
+
+    public long getBytesThrough(Priority priority) {
+        return bytesThrough[priority.ordinal()].get();
+    }
+
+    /*
+        * Total time requests of that priority spent in request(), most of it waiting for tokens.
+     */
+    public long getThrottleMillis(Priority priority) {
+        return TimeUnit.NANOSECONDS.toMillis(throttleNanos[priority.ordinal()].get());
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimiter{rate=" + getBytesPerSecond() + "/s" + (autoTune ? " (max " + maxBytesPerSecond + ")" : "")
+                + ", flushBytes=" + getBytesThrough(Priority.HIGH) + ", flushThrottleMs=" + getThrottleMillis(Priority.HIGH)
+                + ", compactionBytes=" + getBytesThrough(Priority.LOW) + ", compactionThrottleMs=" + getThrottleMillis(Priority.LOW) + "}";
+    }
+}
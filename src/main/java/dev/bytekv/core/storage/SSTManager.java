@@ -1,20 +1,27 @@
 package dev.bytekv.core.storage;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import dev.bytekv.proto.SSTWriteOuterClass;
 
 /*
     * Time complexity of LSM trees are still on average O(N) where N = number of sorted string tables.
        So, we can use some kind of merging strategy to overwrite stale data and create a new sorted string tables, when we hit
        more than k amount of sst.
 
-    * The main responsibility of SSTManager is handle creation of SST and merging of SST tables and tiered compaction
-     where new sorted string tables live on top level in some kind of pyramid ranking. 
+    * The main responsibility of SSTManager is handle creation of SST and merging of SST tables and compaction
+     where new sorted string tables live on top level in some kind of pyramid ranking. How tables are picked for
+     compaction is up to a CompactionStrategy (leveled, size tiered or universal).
 
  */
 
@@ -22,18 +29,57 @@ public class SSTManager {
 
     private final AtomicInteger sstCounter = new AtomicInteger(0);
 
-    private final Map<Integer, List<SSTable>> levels = new TreeMap<>();
-    private final int MAX_SST_PER_LEVEL = 4;
+    private final StorageOptions options;
+    // this store's namespace in options' BlockCache, which may be shared with other stores (same table ids, different data).
+    private final long cacheNamespace;
+
+    /*
+        * Current set of live tables per level. Readers pick it up without any lock (see Version), writers build the next Version
+          under versionLock and publish it with one volatile write, so a reader sees either all of a flush/compaction or none of it.
+    */
+    private volatile Version current = Version.empty();
+    private final Object versionLock = new Object();
+
+    private final Manifest manifest;
+
+    private final CompactionStrategy strategy;
+    private final CompactionStats stats;
+    private final WriteController writeController;
+
+    // ids of flushes still being written. See runCompactions.
+    private final ConcurrentSkipListSet<Integer> pendingFlushes = new ConcurrentSkipListSet<>();
 
     private final ExecutorService compactionExecutor; 
 
+    // runs the key ranges of one big compaction side by side, see mergeSSTables.
+    private final ExecutorService subcompactionExecutor;
+
+    // set by close, no compaction is picked once it is.
+    private volatile boolean closed;
+
     public AtomicInteger getSSTCount() {
         return sstCounter;
     }
 
     public SSTManager() throws IOException{   
-        repopulateIndexes();
+        this(new StorageOptions());
+    }
+
+    public SSTManager(StorageOptions options) throws IOException{
+        this.options = options;
+        this.cacheNamespace = SSTable.newCacheNamespace(options);
+        this.strategy = options.getCompactionStrategy().create(options);
+        this.stats = new CompactionStats(strategy.type());
+        this.writeController = new WriteController(options);
+        this.manifest = new Manifest(new File(options.getDataDir()));
+        if (manifest.exists())
+            recoverFromManifest();
+        else
+            repopulateIndexes();
         compactionExecutor = Executors.newSingleThreadExecutor();
+        subcompactionExecutor = Executors.newFixedThreadPool(options.getMaxSubcompactions());
+        // levels recovered over their targets (or a store still in the old tiered layout) get compacted right away.
+        scheduleCompaction();
     }
 
     /*
@@ -43,73 +89,307 @@ public class SSTManager {
         * Either, We can sort all folders in ascending order and start renaming them from sstable-001 to so on.. which is most viable option but also takes time.
         Or we can simply iterate through all SST and store maximum SST value that we have came across and set our sstCounter to max.
         I'm going with latter option to reduce time to repopulate SS tables.
+
+        * Both block based sstable-NNN.sst files and old sstable-NNN folders are picked up. Leftover .tmp files are from flushes that
+        crashed halfway, so they are simply removed.
+
+        * This scan is only the fallback for a store without a MANIFEST (created before it existed). It writes one at the end, every
+        later startup goes through recoverFromManifest.
     
     */
     
     public void repopulateIndexes() throws IOException {
-        File dir = new File("SST");
-        File[] folders = dir.listFiles(File::isDirectory);
+        File dir = new File(options.getDataDir());
+        deleteLeftovers(dir);
+
+        File[] tables = dir.listFiles(f -> f.getName().startsWith("sstable-") && (f.isDirectory() || f.getName().endsWith(".sst")));
 
-        if (folders == null || folders.length == 0) {
+        if (tables == null || tables.length == 0) {
             System.out.println("--- No SSTables found ---");
             return;
         }
 
-        levels.clear();
-
-        Arrays.sort(folders, Comparator.comparingInt(f -> {
-            String name = f.getName();
-            String[] vals = name.split("-");
-            return Integer.parseInt(vals[1]);
-        }));
+        Arrays.sort(tables, Comparator.comparingInt(f -> SSTable.parseId(f.getName())));
 
         int maxId = 0;
-        for (File folder : folders) {
-            String name = folder.getName();
-            String[] vals = name.split("-");
-            if (vals.length < 2)
-                 continue;
-        
-            int id = Integer.parseInt(vals[1]);
+        List<SSTable> opened = new ArrayList<>();
+        for (File table : tables) {
+            int id = SSTable.parseId(table.getName());
             maxId = Math.max(maxId, id);
         
-            SSTable sst = new SSTable(folder);
-            levels.computeIfAbsent(0, k -> new ArrayList<>()).add(sst);
+            opened.add(new SSTable(table, options, cacheNamespace));
+        }
+
+        // level 0 orders tables by sequence, so newest data is still checked first even though level structure is not known here.
+        Version.Builder edit = Version.empty().edit();
+        for (SSTable sst : opened)
+            edit.add(0, sst);
+        synchronized (versionLock) {
+            install(edit);
+            // from now on the manifest knows the tables, next startup won't need this scan.
+            manifest.rewrite(snapshotOf(current), maxId);
         }
+        for (SSTable sst : opened)
+            sst.release();
     
         sstCounter.set(maxId);
 
-        System.out.println("Repopulated " + folders.length + " SSTables, counter at " + maxId);
+        System.out.println("Repopulated " + tables.length + " SSTables, counter at " + maxId);
+    }
+
+    /*
+        * Normal startup path once a MANIFEST exists. Replaying the edits gives the live tables and the level each one was in when the
+        store went down, so compaction carries on where it stopped instead of starting over from a flat level 0.
+
+        * Tables on disk that the manifest doesn't know are outputs of a flush/compaction that crashed before its edit was logged (the
+        inputs or WAL still hold that data), or inputs whose removal was logged but file not deleted yet. Either way they are garbage.
+
+        * Manifest is rewritten right away as one snapshot edit, that keeps it short and drops a torn last record so later appends
+        are not stuck behind it.
+     */
+    private void recoverFromManifest() throws IOException {
+        File dir = new File(options.getDataDir());
+        deleteLeftovers(dir);
+
+        Map<Integer, VersionEdit.TableMeta> live = new LinkedHashMap<>();
+        int maxId = 0;
+        List<VersionEdit> edits = manifest.replay();
+        for (VersionEdit edit : edits) {
+            // removals first, a table moved down a level is removed and added back by the same edit.
+            for (int id : edit.getRemoved())
+                live.remove(id);
+            for (VersionEdit.TableMeta meta : edit.getAdded()) {
+                live.put(meta.id, meta);
+                maxId = Math.max(maxId, meta.id);
+            }
+            maxId = Math.max(maxId, edit.getLastTableId());
+        }
+
+        File[] onDisk = dir.listFiles(f -> f.getName().startsWith("sstable-") && f.getName().endsWith(".sst"));
+        if (onDisk != null) {
+            for (File f : onDisk) {
+                int id = SSTable.parseId(f.getName());
+                maxId = Math.max(maxId, id);
+                if (!live.containsKey(id)) {
+                    System.out.println("Deleting " + f.getName() + ", not referenced by MANIFEST");
+                    f.delete();
+                }
+            }
+        }
+
+        List<SSTable> opened = new ArrayList<>();
+        Version.Builder edit = Version.empty().edit();
+        try {
+            for (VersionEdit.TableMeta meta : live.values()) {
+                File table = new File(dir, SSTable.fileName(meta.id));
+                if (!table.exists())
+                    table = new File(dir, "sstable-" + String.format("%03d", meta.id));
+                if (!table.exists())
+                    throw new IOException("MANIFEST references sstable-" + String.format("%03d", meta.id) + " but it is missing");
+
+                SSTable sst = new SSTable(table, options, cacheNamespace);
+                opened.add(sst);
+                edit.add(meta.level, sst);
+            }
+
+            synchronized (versionLock) {
+                install(edit);
+                manifest.rewrite(snapshotOf(current), maxId);
+            }
+        } finally {
+            for (SSTable sst : opened)
+                sst.release();
+        }
+
+        sstCounter.set(maxId);
+
+        System.out.println("Recovered " + opened.size() + " SSTables in " + current.levelCount() + " levels from " + edits.size()
+                + " MANIFEST edits, counter at " + maxId);
     }
 
+    // leftover .tmp files are from flushes/compactions that crashed halfway.
+    private static void deleteLeftovers(File dir) {
+        File[] leftovers = dir.listFiles((d, name) -> name.endsWith(".tmp"));
+        if (leftovers != null) {
+            for (File f : leftovers)
+                f.delete();
+        }
+    }
+
+    /*
+        * Flushes a map built by the caller. Its entries are copied into a skip list rep first, a TreeMap in natural String order
+          isn't quite the byte order tables are written in. MemTable doesn't come through here, it hands over its sealed rep.
+     */
     public void flushToSSTable(TreeMap<String, String> memtable) throws IOException {
-        int id = sstCounter.incrementAndGet();
-        SSTable sst = new SSTable(id);
-    
+        SkipListMemTableRep rep = new SkipListMemTableRep();
+        // this map still marks deletes in band, as TOMBSTONE values.
         for (Map.Entry<String, String> entry : memtable.entrySet()) {
-            sst.put(entry.getKey(), entry.getValue());
+            String value = MemTable.TOMBSTONE.equals(entry.getValue()) ? null : entry.getValue();
+            rep.put(entry.getKey(), value, 0, 0);
         }
-    
-        sst.flush();
-        sst.loadFromIndexFile();
-    
-        synchronized(this) {
-            levels.computeIfAbsent(0, k -> new ArrayList<>()).add(sst);
+
+        int id = reserveFlushId();
+        try {
+            flushToSSTable(id, rep);
+        } catch (IOException | RuntimeException e) {
+            pendingFlushes.remove(id);
+            throw e;
         }
-    
-        compactionExecutor.submit(() -> {
-            try {
-                tieredCompaction();
-            } catch (IOException e) {
-                System.err.println("Compaction failed: " + e);
+    }
+
+    /*
+        * Id for a memtable that is about to be flushed, taken when the memtable is sealed so ids (and so sequences in level 0) follow
+          the order memtables were written in, whichever flush thread gets to it first. Stays pending until that flush is installed.
+     */
+    int reserveFlushId() {
+        synchronized (pendingFlushes) {
+            int id = sstCounter.incrementAndGet();
+            pendingFlushes.add(id);
+            return id;
+        }
+    }
+
+    /*
+        * Flush of a sealed memtable rep under a reserved id, entries go from the rep's iterator straight into the writer, nothing is
+          copied or re-sorted on the way. If it fails the id stays pending, so compaction keeps leaving newer level 0 tables alone
+          until the memtable gets flushed again under the same id.
+     */
+    void flushToSSTable(int id, MemTableRep rep) throws IOException {
+        SSTableWriter writer = new SSTableWriter(id, rep.size(), options, RateLimiter.Priority.HIGH);
+
+        try (TableIterator it = rep.iterator()) {
+            while (it.next())
+                writer.add(it);
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+        installFlush(id, writer.finish(cacheNamespace));
+    }
+
+    private void installFlush(int id, SSTable sst) throws IOException {
+        try {
+            synchronized (versionLock) {
+                install(current.edit().add(0, sst), new VersionEdit().addTable(0, sst));
             }
-        });
+            stats.recordFlush(sst.getFileSize());
+        } catch (IOException e) {
+            sst.markObsolete();
+            throw e;
+        } finally {
+            sst.release();
+        }
+        pendingFlushes.remove(id);
+
+        scheduleCompaction();
+    }
+
+    StorageOptions getOptions() {
+        return options;
+    }
+
+    private void scheduleCompaction() {
+        if (closed)
+            return;
+        try {
+            compactionExecutor.submit(() -> {
+                try {
+                    runCompactions();
+                } catch (IOException e) {
+                    System.err.println("Compaction failed: " + e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // closed in between, nothing gets compacted anymore.
+        }
+    }
+
+    /*
+        * Stops compacting and lets go of the MANIFEST, so the process can exit. The compaction running right now still finishes and
+          gets installed, nothing new is picked after it. One that takes longer than a minute is interrupted: its outputs are deleted
+          and its inputs stay live, like any failed compaction. Flushes must be done by then (MemTable.close first).
+     */
+    public void close() throws InterruptedException {
+        closed = true;
+        compactionExecutor.shutdown();
+        if (!compactionExecutor.awaitTermination(60, TimeUnit.SECONDS)) {
+            compactionExecutor.shutdownNow();
+            compactionExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        // subcompactions only run for the compaction thread, which is done by now.
+        subcompactionExecutor.shutdown();
+        subcompactionExecutor.awaitTermination(10, TimeUnit.SECONDS);
+
+        synchronized (versionLock) {
+            manifest.close();
+        }
+    }
+
+    /*
+        * Estimated bloom filter false positive rate of every live table, keyed by table name.
+     */
+    public Map<String, Double> getFilterFalsePositiveRates() {
+        Map<String, Double> rates = new LinkedHashMap<>();
+        for (SSTable sst : getAllSSTables())
+            rates.put(sst.getSSTName(), sst.getFilterFalsePositiveRate());
+        return rates;
+    }
+
+    /*
+        * Logs change to the MANIFEST first and only then publishes the Version, so a table readers could see is always one that
+          survives a restart. If the append fails nothing is published and the caller gets the exception. Caller must hold versionLock.
+     */
+    private void install(Version.Builder edit, VersionEdit change) throws IOException {
+        manifest.append(change.setLastTableId(sstCounter.get()));
+        install(edit);
+
+        if (manifest.needsRewrite())
+            manifest.rewrite(snapshotOf(current), sstCounter.get());
+
+        RateLimiter limiter = options.getRateLimiter();
+        if (limiter != null && limiter.isAutoTune())
+            limiter.tune(strategy.pendingCompactionBytes(current));
+    }
+
+    /*
+        * Builds the Version out of edit and makes it current. Old Version drops the manager's reference, its tables close once the
+          last reader still holding it is done. Caller must hold versionLock.
+     */
+    private void install(Version.Builder edit) {
+        Version next = edit.build();
+        Version old = current;
+        current = next;
+        old.release();
+
+        writeController.update(next.tables(0).size(), strategy.pendingCompactionBytes(next));
     }
 
+    private static List<VersionEdit.TableMeta> snapshotOf(Version version) {
+        List<VersionEdit.TableMeta> tables = new ArrayList<>();
+        for (int level = 0; level < version.levelCount(); level++) {
+            for (SSTable sst : version.tables(level))
+                tables.add(VersionEdit.TableMeta.of(level, sst));
+        }
+        return tables;
+    }
+
+    /*
+        * Current Version with a reference taken, caller must release() it. Loops only in the tiny window where current got replaced
+          and fully released between the volatile read and tryRef.
+     */
+    public Version acquireVersion() {
+        while (true) {
+            Version v = current;
+            if (v.tryRef())
+                return v;
+        }
+    }
+
+    /*
+        * Snapshot of live tables, newest level first. No references are taken, so this is meant for stats, not for reading data.
+     */
     public List<SSTable> getAllSSTables() {
-        List<SSTable> all = new ArrayList<>();
-        levels.values().forEach(all::addAll);
-        return Collections.unmodifiableList(all);
+        return Collections.unmodifiableList(current.allTables());
     }
 
 
@@ -128,117 +408,392 @@ public class SSTManager {
     }
 
     /*
+        * What gets compacted is up to the configured CompactionStrategy (leveled by default), this loop just keeps running whatever it
+        picks until it has nothing left.
+
         * Let's say we have sstable-001, 002 ,003 , 004 and we need to merge them. sstable-004 contains most newest entries. So, we need to make sure
-        only stale data gets overwritten by new entries and not vice versa. 
+        only stale data gets overwritten by new entries and not vice versa. Strategies hand inputs over oldest first for that.
 
-        After merging, older sstables gets slowly promoted or upgraded to next level because they are "old".
+        * Compaction runs on its own single thread, so inputs picked from current Version can't be taken by anyone else. Only the
+        install at the end takes versionLock, flushes are never blocked behind a long merge.
 
+        * Level 0 tables newer than a flush that is still being written are left alone. Otherwise the merged table (pushed down a
+        level) could hold newer data than that flush, which lands in level 0 afterwards and would then shadow it on reads.
     */
-    private synchronized void tieredCompaction() throws IOException {
-        for (int level : new ArrayList<>(levels.keySet())) {
-            List<SSTable> ssts = levels.get(level);
+    private void runCompactions() throws IOException {
+        Compaction c;
+        while (!closed && (c = strategy.pick(current, oldestPendingFlush())) != null)
+            runCompaction(c);
+    }
 
-            while (ssts.size() >= MAX_SST_PER_LEVEL) {
-                List<SSTable> toMerge = new ArrayList<>(ssts.subList(0, MAX_SST_PER_LEVEL));
+    private void runCompaction(Compaction c) throws IOException {
+        int target = c.getOutputLevel();
 
-                Collections.reverse(toMerge);
+        // nothing to merge with, the table just moves to its new level without being rewritten.
+        if (c.isTrivialMove()) {
+            SSTable sst = c.getInputs().get(0);
+            synchronized (versionLock) {
+                install(current.edit().remove(sst).add(target, sst), new VersionEdit().removeTable(sst).addTable(target, sst));
+            }
+            stats.recordTrivialMove();
+            System.out.println("Moved " + sst.getSSTName() + " to level " + target);
+            return;
+        }
 
-                SSTable merged = mergeSSTables(toMerge);
+        List<SSTable> inputs = c.getInputs();
+        List<SSTable> outputs = mergeSSTables(inputs, target, c.getMaxOutputFileSize(), olderRanges(current, inputs));
 
-                for (SSTable sst : toMerge) {
-                    deleteFolder(Paths.get("SST", sst.getSSTName()).toFile());
+        long written = 0;
+        try {
+            synchronized (versionLock) {
+                Version.Builder edit = current.edit();
+                VersionEdit change = new VersionEdit();
+                for (SSTable sst : inputs) {
+                    edit.remove(sst);
+                    change.removeTable(sst);
+                    // only takes effect once the last reference is gone, which can't happen before install logged the removal.
+                    sst.markObsolete();
                 }
-
-                ssts.subList(0, MAX_SST_PER_LEVEL).clear();
-
-                levels.computeIfAbsent(level + 1, k -> new ArrayList<>()).add(merged);
-
-                System.out.println("Promoted merged SSTable to level " + (level + 1));
+                for (SSTable sst : outputs) {
+                    edit.add(target, sst);
+                    change.addTable(target, sst);
+                    written += sst.getFileSize();
+                }
+                install(edit, change);
             }
+        } catch (IOException e) {
+            for (SSTable sst : outputs)
+                sst.markObsolete();
+            throw e;
+        } finally {
+            for (SSTable sst : outputs)
+                sst.release();
         }
+
+        stats.recordCompaction(c.inputBytes(), written);
+        System.out.println("Compacted " + inputs.size() + " tables from level " + c.getLevel() + " into " + outputs.size()
+                + " at level " + target);
     }
 
-    private SSTable mergeSSTables(List<SSTable> sstables) throws IOException {
-        SSTable merged = new SSTable(sstCounter.incrementAndGet());
-        List<DataInputStream> streams = new ArrayList<>();
+    /*
+        * Writers (Coordinator) call throttle() on it before every write, see WriteController.
+     */
+    public WriteController getWriteController() {
+        return writeController;
+    }
 
-    /* 
-         * to merge entries into one SST, I'm using k-way merge where we take data entries from each SST and if the key is found to be duplicate then
-           newer SST value gets written into new SST because they are true or consistent value. if no conflict, then simply write all data into new SST.
-    */
+    public CompactionStats getCompactionStats() {
+        return stats;
+    }
 
-        PriorityQueue<Entry> pq = new PriorityQueue<>((e1, e2) -> {
-        int cmp = e1.key.compareTo(e2.key); 
-        if (cmp != 0)
-             return cmp;
+    public long getPendingCompactionBytes() {
+        return strategy.pendingCompactionBytes(current);
+    }
 
-        // conflict of same keys ? write value of newer SST.
-        return Integer.compare(e2.sstIndex, e1.sstIndex);
-        });
+    private long oldestPendingFlush() {
+        synchronized (pendingFlushes) {
+            return pendingFlushes.isEmpty() ? Long.MAX_VALUE : pendingFlushes.first();
+        }
+    }
 
-        try {
-            for (int i = 0; i < sstables.size(); i++) {
-                SSTable sst = sstables.get(i);
-                Path path = Paths.get("SST", sst.getSSTName(), sst.getSSTName() + ".data");
-                DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(path.toFile())));
-                streams.add(dis);
+    /*
+        * Merges sstables (oldest first) into tables of about maxFileSize each. Output is cut only between two different keys, so
+          key ranges of the outputs never overlap.
+
+        * A big merge is split into disjoint key ranges (subcompactions) merged in parallel on subcompactionExecutor, each range
+          writing its own output tables. A single k-way merge keeps one core busy no matter how many the box has.
+     */
+    private List<SSTable> mergeSSTables(List<SSTable> sstables, int outputLevel, long targetFileSize, OlderRanges older) throws IOException {
+        long totalKeys = 0, totalBytes = 0;
+        long minSequence = Long.MAX_VALUE, maxSequence = Long.MIN_VALUE;
+        for (SSTable sst : sstables) {
+            totalKeys += sst.getEntryCount();
+            totalBytes += sst.getFileSize();
+            minSequence = Math.min(minSequence, sst.getMinSequence());
+            maxSequence = Math.max(maxSequence, sst.getMaxSequence());
+        }
 
+        // fresh filter per output, sized by the share of keys that fits in targetFileSize (plus some slack). Input filters can't
+        // simply be OR-ed together once sizes differ.
+        long keysPerOutput = totalKeys;
+        if (totalBytes > targetFileSize)
+            keysPerOutput = Math.min(totalKeys, (long) Math.ceil(totalKeys * 1.25 * targetFileSize / totalBytes));
+
+        List<byte[]> bounds = subcompactionBoundaries(sstables, totalBytes, targetFileSize);
+        if (bounds.isEmpty())
+            return mergeRange(sstables, null, null, outputLevel, targetFileSize, keysPerOutput, minSequence, maxSequence, older, null);
+
+        // key ranges are disjoint and handed out in order, so outputs collected in range order stay sorted by key.
+        List<Future<List<SSTable>>> parts = new ArrayList<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        for (int i = 0; i <= bounds.size(); i++) {
+            byte[] from = i == 0 ? null : bounds.get(i - 1);
+            byte[] to = i == bounds.size() ? null : bounds.get(i);
+            final long keys = keysPerOutput, minSeq = minSequence, maxSeq = maxSequence;
+            parts.add(subcompactionExecutor.submit(() -> mergeRange(sstables, from, to, outputLevel, targetFileSize, keys, minSeq, maxSeq, older, cancelled)));
+        }
+
+        /*
+            * Once one part fails (or this thread is interrupted) the others are told to stop, but still waited for: a part that was
+              already done or finishes anyway hands back tables that must be deleted here, and one that stops deletes its own. Futures
+              are never cancelled, a cancelled future drops the tables its part returns and they would sit on disk until next start.
+         */
+        List<SSTable> outputs = new ArrayList<>();
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (Future<List<SSTable>> part : parts) {
+            while (true) {
                 try {
-                    int len = dis.readInt();
-                    byte[] buf = new byte[len];
-                    dis.readFully(buf);
-
-                    SSTWriteOuterClass.SSTWrite msg = SSTWriteOuterClass.SSTWrite.parseFrom(buf);
-                    pq.add(new Entry(msg.getKey(), msg.getValue(), dis, i));  
-                } catch (EOFException ignored) {
-                    dis.close(); 
+                    outputs.addAll(part.get());
+                } catch (ExecutionException e) {
+                    failure = failure == null ? e.getCause() : failure;
+                    cancelled.set(true);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    failure = failure == null ? e : failure;
+                    cancelled.set(true);
+                    continue;
                 }
+                break;
             }
+        }
 
-            String lastKey = null;
+        if (failure != null) {
+            for (SSTable sst : outputs) {
+                sst.markObsolete();
+                sst.release();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Compaction interrupted");
+            }
+            if (failure instanceof IOException)
+                throw (IOException) failure;
+            throw new IOException("Subcompaction failed", failure);
+        }
 
-            while (!pq.isEmpty()) {
-                Entry smallest = pq.poll();
+        System.out.println("Merged " + sstables.size() + " tables in " + parts.size() + " subcompactions");
+        return outputs;
+    }
 
-                if(lastKey == null || !smallest.key.equals(lastKey)){
-                    merged.put(smallest.key, smallest.value);
-                    lastKey = smallest.key;
-                }
+    /*
+        * Cuts the key space of a compaction into up to maxSubcompactions ranges of about the same number of bytes, using the block
+          index of every input as candidate cut points. Nothing is split unless every range still fills at least one output table,
+          and compactions writing one unbounded output (level 0 of size tiered and universal) are never split.
+     */
+    private List<byte[]> subcompactionBoundaries(List<SSTable> sstables, long totalBytes, long targetFileSize) {
+        List<byte[]> bounds = new ArrayList<>();
+        if (targetFileSize == Long.MAX_VALUE)
+            return bounds;
+        int ranges = (int) Math.min(options.getMaxSubcompactions(), totalBytes / Math.max(1, targetFileSize));
+        if (ranges <= 1)
+            return bounds;
+
+        List<CutPoint> points = new ArrayList<>();
+        for (SSTable sst : sstables) {
+            SparseIndex index = sst.getIndex();
+            if (index == null)
+                continue;
+            for (int i = 0; i < index.size(); i++) {
+                long end = i + 1 < index.size() ? index.offset(i + 1) : sst.getFileSize();
+                points.add(new CutPoint(index.keyBytes(i), end - index.offset(i)));
+            }
+        }
+        points.sort((a, b) -> SSTable.compareKeys(a.key, b.key));
+
+        long indexed = 0;
+        for (CutPoint p : points)
+            indexed += p.bytes;
+
+        long seen = 0;
+        for (CutPoint p : points) {
+            byte[] key = p.key;
+            // cut before this block once the ranges so far hold their share.
+            if (seen >= indexed * (bounds.size() + 1) / ranges
+                    && (bounds.isEmpty() || SSTable.compareKeys(bounds.get(bounds.size() - 1), key) < 0)) {
+                bounds.add(key);
+                if (bounds.size() == ranges - 1)
+                    break;
+            }
+            seen += p.bytes;
+        }
+        return bounds;
+    }
 
-                DataInputStream dis = smallest.stream;
-                try {
-                    int len = dis.readInt();
-                    byte[] buf = new byte[len];
-                    dis.readFully(buf);
-
-                    SSTWriteOuterClass.SSTWrite msg = SSTWriteOuterClass.SSTWrite.parseFrom(buf);
-                    pq.add(new Entry(msg.getKey(), msg.getValue(), dis, smallest.sstIndex));
-                } catch (EOFException eof) {
-                    dis.close(); 
+    // first key of a data block and how many bytes the block holds.
+    private static final class CutPoint {
+        final byte[] key;
+        final long bytes;
+
+        CutPoint(byte[] key, long bytes) {
+            this.key = key;
+            this.bytes = bytes;
+        }
+    }
+
+    /*
+        * Merges the part of sstables (oldest first) with from <= key < to into tables of about targetFileSize each. Gives up, deleting
+          what it wrote so far, once cancelled (if given) is set.
+     */
+    private List<SSTable> mergeRange(List<SSTable> sstables, byte[] from, byte[] to, int outputLevel, long targetFileSize,
+                                     long keysPerOutput, long minSequence, long maxSequence, OlderRanges older,
+                                     AtomicBoolean cancelled) throws IOException {
+    /*
+         * to merge entries into one SST, I'm using k-way merge where we take data entries from each SST and if the key is found to be duplicate then
+           newer SST value gets written into new SST because they are true or consistent value. if no conflict, then simply write all data into new SST.
+           sstables are passed oldest first, so a bigger index means a newer table, MergingIterator does the picking.
+
+         * Entries stay bytes all the way from the input blocks to the output block, nothing is decoded or allocated per entry.
+
+         * Older versions of a key never make it out of MergingIterator. A tombstone is dropped too when no table outside of this
+           compaction can hold an older version of its key (see OlderRanges), there is nothing left for it to delete.
+
+         * Every value that is left goes through options' CompactionFilter first, a removed value becomes a tombstone and follows the same rule.
+    */
+
+        List<SSTable> outputs = new ArrayList<>();
+        SSTableWriter merged = null;
+        List<TableIterator> inputs = new ArrayList<>();
+        long dropped = 0, filtered = 0;
+        CompactionFilter filter = options.getCompactionFilter();
+        ByteArrayOutputStream newValue = new ByteArrayOutputStream();
+
+        try {
+            for (SSTable sst : sstables)
+                inputs.add(sst.tableIterator(from, to));
+
+            try (MergingIterator it = new MergingIterator(inputs)) {
+                while (it.next()) {
+                    if (cancelled != null && cancelled.get())
+                        throw new InterruptedIOException("Subcompaction cancelled");
+                    CompactionFilter.Decision decision = CompactionFilter.Decision.KEEP;
+                    if (filter != null && !it.isTombstone()) {
+                        newValue.reset();
+                        decision = filter.filter(outputLevel, it, newValue);
+                        if (decision != CompactionFilter.Decision.KEEP)
+                            filtered++;
+                    }
+
+                    boolean tombstone = it.isTombstone() || decision == CompactionFilter.Decision.REMOVE;
+                    if (tombstone && !older.mayContain(it.buffer(), it.keyOffset(), it.keyLength())) {
+                        dropped++;
+                        continue;
+                    }
+                    if (merged != null && merged.getFileSize() >= targetFileSize) {
+                        outputs.add(merged.finish(cacheNamespace));
+                        merged = null;
+                    }
+                    if (merged == null) {
+                        merged = new SSTableWriter(sstCounter.incrementAndGet(), keysPerOutput, options, RateLimiter.Priority.LOW);
+                        merged.setSequenceRange(minSequence, maxSequence);
+                    }
+
+                    if (tombstone)
+                        merged.delete(it);
+                    else if (decision == CompactionFilter.Decision.CHANGE_VALUE)
+                        merged.add(it, newValue.toByteArray());
+                    else
+                        merged.add(it);
                 }
             }
-        } finally {
-            for (DataInputStream dis : streams) {
-                try { dis.close(); } catch (IOException ignored) {}
+
+            if (merged != null)
+                outputs.add(merged.finish(cacheNamespace));
+            stats.recordDroppedTombstones(dropped);
+            stats.recordFilteredEntries(filtered);
+        } catch (IOException | RuntimeException e) {
+            for (TableIterator input : inputs)
+                input.close();
+            if (merged != null)
+                merged.abort();
+            for (SSTable sst : outputs) {
+                sst.markObsolete();
+                sst.release();
             }
+            throw e;
         }
 
-        merged.flush();
-        merged.loadFromIndexFile();
-        return merged;
+        return outputs;
+    }
+
+    /*
+        * Older tables a compaction of inputs doesn't touch, as far as their keys go. Computed once per compaction from the Version it
+          was picked from. Compaction runs on one thread and flushes only add newer tables, so it stays valid until install.
+     */
+    private static OlderRanges olderRanges(Version v, List<SSTable> inputs) {
+        byte[] lo = null, hi = null;
+        long maxSequence = Long.MIN_VALUE;
+        boolean unbounded = false;
+        for (SSTable sst : inputs) {
+            maxSequence = Math.max(maxSequence, sst.getMaxSequence());
+            if (sst.minKeyBytes() == null)
+                unbounded = true;
+            if (!sst.hasKeyRange())
+                continue;
+            if (lo == null || SSTable.compareKeys(sst.minKeyBytes(), lo) < 0)
+                lo = sst.minKeyBytes();
+            if (hi == null || SSTable.compareKeys(sst.maxKeyBytes(), hi) > 0)
+                hi = sst.maxKeyBytes();
+        }
+        if (lo == null && !unbounded)
+            return new OlderRanges(Collections.emptyList());
+        return new OlderRanges(unbounded ? v.olderOverlapping(inputs, null, null, maxSequence) : v.olderOverlapping(inputs, lo, hi, maxSequence));
     }
 
+    /*
+        * Key ranges of a set of tables, merged into sorted disjoint ranges so a key is checked with one binary search.
+     */
+    private static final class OlderRanges {
+        private final ByteBuffer[] lo;
+        private final ByteBuffer[] hi;
+        private final boolean everything;
+
+        OlderRanges(List<SSTable> tables) {
+            List<SSTable> sorted = new ArrayList<>();
+            boolean all = false;
+            for (SSTable sst : tables) {
+                if (sst.minKeyBytes() == null)
+                    all = true;
+                else if (sst.hasKeyRange())
+                    sorted.add(sst);
+            }
+            sorted.sort(SSTable::compareMinKeys);
+
+            List<byte[]> los = new ArrayList<>(), his = new ArrayList<>();
+            for (SSTable sst : sorted) {
+                int last = his.size() - 1;
+                if (last >= 0 && SSTable.compareKeys(sst.minKeyBytes(), his.get(last)) <= 0) {
+                    if (SSTable.compareKeys(sst.maxKeyBytes(), his.get(last)) > 0)
+                        his.set(last, sst.maxKeyBytes());
+                    continue;
+                }
+                los.add(sst.minKeyBytes());
+                his.add(sst.maxKeyBytes());
+            }
 
-    private static class Entry {
-        String key, value;
-        DataInputStream stream;
-        int sstIndex;
+            this.everything = all;
+            this.lo = new ByteBuffer[los.size()];
+            this.hi = new ByteBuffer[his.size()];
+            for (int i = 0; i < los.size(); i++) {
+                lo[i] = ByteBuffer.wrap(los.get(i));
+                hi[i] = ByteBuffer.wrap(his.get(i));
+            }
+        }
 
-        Entry(String key, String value, DataInputStream stream, int sstIndex) {
-        this.key = key;
-        this.value = value; 
-        this.stream = stream;
-        this.sstIndex = sstIndex; 
-    }
+        boolean mayContain(ByteBuffer key, int offset, int length) {
+            if (everything)
+                return true;
+            int l = 0, h = lo.length - 1, found = -1;
+            while (l <= h) {
+                int mid = (l + h) >>> 1;
+                if (TableIterator.compareKeys(lo[mid], 0, lo[mid].capacity(), key, offset, length) <= 0) {
+                    found = mid;
+                    l = mid + 1;
+                } else {
+                    h = mid - 1;
+                }
+            }
+            return found >= 0 && TableIterator.compareKeys(key, offset, length, hi[found], 0, hi[found].capacity()) <= 0;
+        }
     }
 }
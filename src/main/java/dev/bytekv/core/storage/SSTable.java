@@ -1,205 +1,612 @@
 package dev.bytekv.core.storage;
 
 import java.io.*;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
+import java.util.zip.CRC32;
 import java.nio.file.Files;
 import dev.bytekv.proto.SSTWriteOuterClass;
 
 /*
-    
-    * When number of entries in memTable exceed, all data gets flushed to file in sorted order. The main reason to sort data is for range queries.
-    To balance memory overhead and read latency, Instead of having indexes to all entries. I'm sparsely storing indexes of data every 4KB.
 
+    * When number of entries in memTable exceed, all data gets flushed to file in sorted order. The main reason to sort data is for range queries.
+    Tables are written by SSTableWriter as a single file made of fixed size data blocks, a block index and a footer (see SSTableWriter for layout).
 
-    * This way we can still acccess data pretty fast but we have to search nearest indexes and then do some kind of binary search to achieve almost
-    O(logn) time complexity for reads.
+    * On open, only footer, index and meta are read. Index holds first key of every block, so a point read is a floor lookup in memory followed by
+    reading exactly one data block and scanning it.
 
     * Reads in LSM-based database still take around O(N) Where N = number of sorted string tables. I'm using bloom filters which are probabilistic data
     structures which can give if a data that we are querying exists or not.
 
+    * Older versions of ByteKV wrote every table as a sstable-NNN folder with a protobuf .data file and a text .index file every 4KB. Those folders
+    are still readable (legacy mode) so existing data keeps working, they just get rewritten into the new format as compaction touches them.
+
     * Tradeoffs:
-    - Sparsed indexes approach takes time if the MAX_SPARSE_INDEX is too long.
+    - Bigger blocks mean smaller index but more bytes scanned per read.
     - Bloom filters can still spit out false positives but is worth to have implement to decrease read latency as long we have good
     hash functions and more number of bitsets.
-     
+
  */
 
 public class SSTable {
-    public LinkedHashMap<String, Long> indexMap;
-    private String dataFile;
-    private String indexFile;
-    private String dirName;
+
+    static final int FORMAT_VERSION = 8;
+    static final long MAGIC = 0x4279746555535354L;
+    static final int FOOTER_SIZE = 8 + 4 + 8 + 4 + 4 + 8;
+    static final int BLOCK_TRAILER_SIZE = 4;
+    static final int ENTRY_HEADER_SIZE = 4 + 4 + 1;
+
+    static final byte TYPE_VALUE = 0;
+    static final byte TYPE_TOMBSTONE = 1;
+    // value prefixed with the epoch millis it expires at, since format version 8.
+    static final byte TYPE_EXPIRING = 2;
+
+    private final int id;
+    private final File file;
+    private final boolean legacy;
     private String padded;
 
-    private BloomFilter bloomFilter; 
-    
-    private long offset = 0;
+    private KeyFilter bloomFilter;
 
     /*
-       * indexWriter is a wrapper to simple FileWriter which keeps a memory buffer to batchWrite to .index file.
-       * dataSeeker uses RandomAccessFile which shines the best when you when you want to seek to specific offsets in a file.
-       * dataOut is used to batch write to .data file which contains actual data
+        * All reads go through FileChannel positional reads (pread). There is no shared file pointer to seek, so any number of
+          threads can read the same table at the same time without locking each other out.
     */
-    
-    private BufferedWriter indexWriter;
-    private RandomAccessFile dataSeeker;
-    private DataOutputStream dataOut; 
+    private volatile FileChannel channel;
+    private long fileLength;
+    private volatile boolean closed = false;
 
-    private static final String DELIMITER = "::||::";
-    
-    private long lastSeenIndexLength = 0;
-    private static final int MAX_SPARSE_INDEX = 4096;
+    /*
+        * In mmap mode the whole table is mapped once at open and blocks are parsed straight out of the mapping, so a get
+          does no read syscall and copies no block into a byte[]. Page cache does the caching for us.
 
-    public SSTable(int sstNumber) throws IOException {
-        this.bloomFilter = new BloomFilter(10000);
-        this.padded = String.format("%03d", sstNumber);
-        this.dirName = "SST/sstable-" + padded;
+        * A mapping can't be released while some reader is still walking it (touching an unmapped page crashes the JVM), that's why
+          tables are reference counted. Whoever opens a table holds the first reference, every Version containing it holds one more,
+          and the table is unmapped and closed only when the last one is gone.
+    */
+    private MappedByteBuffer mapped;
+    private final AtomicInteger refs = new AtomicInteger(1);
+    private volatile boolean obsolete = false;
 
-        new File(dirName).mkdir();
-            
-        this.indexMap = new LinkedHashMap<>();
-        this.indexFile = "sstable-" + padded + ".index";
-        this.dataFile = "sstable-" + padded + ".data";
+    // shared with every other table of the store, null when caching is off or table is mmapped.
+    private BlockCache blockCache;
+    // the store's namespace in blockCache, see BlockCache.newNamespace.
+    private final long cacheNamespace;
 
-        String indexPath = Paths.get(dirName, this.indexFile).toString();
-        String dataPath = Paths.get(dirName, this.dataFile).toString();
+    private static final ThreadLocal<CRC32> crcThreadLocal = ThreadLocal.withInitial(CRC32::new);
 
-        new File(indexPath).createNewFile();
-        new File(dataPath).createNewFile();
+    /*
+        * For block tables this is the block index, for legacy tables it's the sparse index read from .index file.
+          Either way a lookup is a binary search for the floor entry.
+    */
+    private SparseIndex index;
 
-        indexWriter = new BufferedWriter(new FileWriter(indexPath));
-        dataSeeker = new RandomAccessFile(dataPath, "r");
-        dataOut = new DataOutputStream(new FileOutputStream(dataPath, true));
+    // block format
+    private long entryCount;
+    private long tombstoneCount;
+    private String minKey;
+    private String maxKey;
+
+    /*
+        * Key range and sequence range are known at open, so a lookup can skip a table whose [minKey, maxKey] can't hold the key
+          before even touching its filter. Sequence range is the range of flush ids whose data ended up in this table: a flushed table
+          is [id, id], a merged one spans all of its inputs, so bigger sequence always means newer data.
+    */
+    private byte[] minKeyBytes;
+    private byte[] maxKeyBytes;
+    private long minSequence;
+    private long maxSequence;
+
+    // legacy format
+    private String dirName;
+    private String indexFile;
+
+    private static final String DELIMITER = "::||::";
+
+    SSTable(int id, File file, KeyFilter bloomFilter, StorageOptions options, long cacheNamespace) throws IOException {
+        this.id = id;
+        this.cacheNamespace = cacheNamespace;
+        this.file = file;
+        this.legacy = false;
+        this.padded = String.format("%03d", id);
+        this.bloomFilter = bloomFilter;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.fileLength = channel.size();
+
+        maybeMap(options);
+        if (mapped == null)
+            blockCache = options.getBlockCache();
+        readFooter(options);
+    }
+
+    /*
+        * Opens a table found on disk during startup. A plain file is a block based table, a folder is an old sstable-NNN directory.
+          The table gets a block cache namespace of its own, SSTManager passes its store's one instead.
+     */
+    public SSTable(File fileOrFolder, StorageOptions options) throws IOException {
+        this(fileOrFolder, options, newCacheNamespace(options));
+    }
 
+    SSTable(File fileOrFolder, StorageOptions options, long cacheNamespace) throws IOException {
+        this.cacheNamespace = cacheNamespace;
+        if (fileOrFolder.isDirectory()) {
+            this.legacy = true;
+            this.file = fileOrFolder;
+            this.dirName = fileOrFolder.getAbsolutePath();
+            this.padded = fileOrFolder.getName().split("-")[1];
+            this.id = Integer.parseInt(padded);
+
+            this.indexFile = "sstable-" + padded + ".index";
+            this.minSequence = id;
+            this.maxSequence = id;
+            String dataPath = Paths.get(dirName, "sstable-" + padded + ".data").toString();
+
+            this.channel = FileChannel.open(Paths.get(dataPath), StandardOpenOption.READ);
+            this.fileLength = channel.size();
+
+            loadFromIndexFile();
+            rebuildFilter(new LegacyTableIterator(null, null), options);
+        } else {
+            this.legacy = false;
+            this.file = fileOrFolder;
+            this.id = parseId(fileOrFolder.getName());
+            this.padded = String.format("%03d", id);
+            this.channel = FileChannel.open(fileOrFolder.toPath(), StandardOpenOption.READ);
+            this.fileLength = channel.size();
+
+            maybeMap(options);
+            if (mapped == null)
+                blockCache = options.getBlockCache();
+            readFooter(options);
+        }
     }
 
-    public SSTable(File folder) throws IOException {
-        this.dirName = folder.getAbsolutePath();
-        this.padded = folder.getName().split("-")[1];
+    static long newCacheNamespace(StorageOptions options) {
+        return options.getBlockCache() == null ? 0 : options.getBlockCache().newNamespace();
+    }
 
-        this.indexFile = "sstable-" + padded + ".index";
-        this.dataFile = "sstable-" + padded + ".data";
+    /*
+        * Legacy tables are never mapped, and neither are tables above mmapMaxFileSize; those keep using pread.
+    */
+    private void maybeMap(StorageOptions options) throws IOException {
+        if (!options.isMmapReads() || fileLength > options.getMmapMaxFileSize() || fileLength > Integer.MAX_VALUE)
+            return;
+        mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileLength);
+    }
 
-        String indexPath = Paths.get(dirName, indexFile).toString();
-        String dataPath = Paths.get(dirName, dataFile).toString();
+    public boolean isMapped() {
+        return mapped != null;
+    }
 
-        this.dataSeeker = new RandomAccessFile(dataPath, "r");
-        this.indexMap = new LinkedHashMap<>();
-        dataOut = new DataOutputStream(new FileOutputStream(dataPath, true));
+    static String fileName(int id) {
+        return "sstable-" + String.format("%03d", id) + ".sst";
+    }
 
-        loadFromIndexFile();
+    static int parseId(String name) {
+        String base = name.endsWith(".sst") ? name.substring(0, name.length() - 4) : name;
+        return Integer.parseInt(base.split("-")[1]);
     }
 
     public String getSSTName(){
         return "sstable-" + this.padded;
     }
 
-    public void put(String key, String value) throws IOException {
+    public int getId() {
+        return id;
+    }
 
-        long ts = System.currentTimeMillis();
+    public boolean isLegacy() {
+        return legacy;
+    }
 
-        SSTWriteOuterClass.SSTWrite entry = SSTWriteOuterClass.SSTWrite.newBuilder()
-                .setTimestamp(ts)
-                .setKey(key)
-                .setValue(value)
-                .setIsTombstone(false)
-                .build();
+    public KeyFilter getFilter() {
+        return bloomFilter;
+    }
 
-        byte[] bytes = entry.toByteArray();
+    public double getFilterFalsePositiveRate() {
+        return bloomFilter == null ? 1.0 : bloomFilter.estimatedFalsePositiveRate();
+    }
 
-        long entryOffset = offset;
+    public long getEntryCount() {
+        return entryCount;
+    }
 
-        dataOut.writeInt(bytes.length);
-        dataOut.write(bytes);
+    public String getMinKey() {
+        return minKey;
+    }
 
-        if(lastSeenIndexLength > MAX_SPARSE_INDEX){
-            indexWriter.write(key + DELIMITER + entryOffset + "\n");
-            indexMap.put(key, entryOffset);
-            lastSeenIndexLength = 0;
-        }
+    public String getMaxKey() {
+        return maxKey;
+    }
 
-        offset += 4 + bytes.length;
-        lastSeenIndexLength += (4 + bytes.length);
+    public long getTombstoneCount() {
+        return tombstoneCount;
+    }
 
-        bloomFilter.add(key);
+    /*
+        * Share of entries that are tombstones, what compaction strategies use to find tables worth compacting just for their deletes.
+     */
+    public double getTombstoneRatio() {
+        return entryCount == 0 ? 0.0 : (double) tombstoneCount / entryCount;
     }
 
-     public void delete(String key) throws IOException {
+    public long getFileSize() {
+        return fileLength;
+    }
+
+    public long getMinSequence() {
+        return minSequence;
+    }
 
-        if(key == null)
-            return ;
+    public long getMaxSequence() {
+        return maxSequence;
+    }
+
+    /*
+        * false when key is outside of [minKey, maxKey] or table is empty. Tables without a known range answer true.
+     */
+    public boolean mayContainKey(LookupKey lookup) {
+        if (minKeyBytes == null)
+            return true;
+        if (entryCount == 0)
+            return false;
+        byte[] k = lookup.bytes();
+        return compareKeys(k, minKeyBytes) >= 0 && compareKeys(k, maxKeyBytes) <= 0;
+    }
+
+    /*
+        * Key order between two tables, used by SSTManager to keep non-overlapping levels sorted.
+     */
+    static int compareMinKeys(SSTable a, SSTable b) {
+        return compareKeys(a.minKeyBytes, b.minKeyBytes);
+    }
 
-        long ts = System.currentTimeMillis();
+    boolean overlaps(SSTable other) {
+        if (minKeyBytes == null || other.minKeyBytes == null)
+            return true;
+        return compareKeys(minKeyBytes, other.maxKeyBytes) <= 0 && compareKeys(other.minKeyBytes, maxKeyBytes) <= 0;
+    }
 
-        SSTWriteOuterClass.SSTWrite entry = SSTWriteOuterClass.SSTWrite.newBuilder()
-                .setTimestamp(ts)
-                .setKey(key)
-                .setValue("")
-                .setIsTombstone(true)
-                .build();
+    /*
+        * Whether this table's keys can fall within [lo, hi]. Empty tables overlap nothing, tables without a known range overlap everything.
+     */
+    boolean overlapsRange(byte[] lo, byte[] hi) {
+        if (minKeyBytes == null)
+            return true;
+        if (entryCount == 0)
+            return false;
+        return compareKeys(minKeyBytes, hi) <= 0 && compareKeys(lo, maxKeyBytes) <= 0;
+    }
 
-        byte[] bytes = entry.toByteArray();
+    boolean hasKeyRange() {
+        return minKeyBytes != null && entryCount > 0;
+    }
 
-        long entryOffset = offset;
+    byte[] minKeyBytes() {
+        return minKeyBytes;
+    }
 
-        dataOut.writeInt(bytes.length);
-        dataOut.write(bytes);
+    byte[] maxKeyBytes() {
+        return maxKeyBytes;
+    }
 
-        if(lastSeenIndexLength > MAX_SPARSE_INDEX){
-            indexWriter.write(key + DELIMITER + entryOffset + "\n");
-            indexMap.put(key, entryOffset);
-            lastSeenIndexLength = 0;
+    private void readFooter(StorageOptions options) throws IOException {
+        if (fileLength < FOOTER_SIZE)
+            throw new IOException(file + " is too small to be an SSTable");
+
+        ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+        readFully(footer, fileLength - FOOTER_SIZE);
+        long indexOffset = footer.getLong();
+        int indexLength = footer.getInt();
+        long metaOffset = footer.getLong();
+        int metaLength = footer.getInt();
+        int version = footer.getInt();
+        long magic = footer.getLong();
+
+        if (magic != MAGIC)
+            throw new IOException(file + " has a bad magic number, not an SSTable");
+        if (version < 1 || version > FORMAT_VERSION)
+            throw new IOException(file + " has unsupported format version " + version);
+
+        byte[] metaBytes = new byte[metaLength];
+        readFully(ByteBuffer.wrap(metaBytes), metaOffset);
+        DataInputStream meta = new DataInputStream(new ByteArrayInputStream(metaBytes));
+        entryCount = meta.readLong();
+        minKeyBytes = readKeyBytes(meta);
+        maxKeyBytes = readKeyBytes(meta);
+        minKey = new String(minKeyBytes, StandardCharsets.UTF_8);
+        maxKey = new String(maxKeyBytes, StandardCharsets.UTF_8);
+        minSequence = id;
+        maxSequence = id;
+
+        if (version >= 2) {
+            long filterOffset = meta.readLong();
+            int filterLength = meta.readInt();
+            KeyFilter.Type filterType = version >= 5 ? KeyFilter.Type.fromId(meta.readByte()) : KeyFilter.Type.BLOOM;
+            if (bloomFilter == null && version >= 4)
+                bloomFilter = filterType.readFrom(readBlock(filterOffset, filterLength, false));
         }
+        if (version >= 6) {
+            minSequence = meta.readLong();
+            maxSequence = meta.readLong();
+        }
+        // tables from before version 7 just report no tombstones until compaction rewrites them.
+        if (version >= 7)
+            tombstoneCount = meta.readLong();
+
+        byte[] indexBytes = new byte[indexLength];
+        readFully(ByteBuffer.wrap(indexBytes), indexOffset);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(indexBytes));
+
+        int count = in.readInt();
+        SparseIndex.Builder builder = new SparseIndex.Builder();
+        for (int i = 0; i < count; i++) {
+            byte[] firstKey = readKeyBytes(in);
+            long blockOffset = in.readLong();
+            int blockLength = in.readInt();
+            builder.add(firstKey, blockOffset, blockLength);
+        }
+        index = builder.build();
 
-        offset += 4 + bytes.length;
-        lastSeenIndexLength += (4 + bytes.length);
+        // version 1 had no filter and 2-3 hashed keys differently, their filter is rebuilt once from data until compaction rewrites them.
+        if (bloomFilter == null && version < 4)
+            rebuildFilter(new BlockTableIterator(null, null), options);
+    }
 
+    private static byte[] readKeyBytes(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        byte[] buf = new byte[len];
+        in.readFully(buf);
+        return buf;
     }
 
-    void flush() {
+    public SparseIndex getIndex() {
+        return index;
+    }
+
+    public synchronized void close() {
+        if (closed)
+            return;
+        closed = true;
         try {
-            dataOut.flush();
-            indexWriter.flush();
+            channel.close();
         } catch(IOException e) {
             System.out.println(e.getMessage());
         }
+        if (mapped != null) {
+            unmap(mapped);
+            mapped = null;
+        }
+        if (blockCache != null)
+            blockCache.invalidate(cacheNamespace, id);
     }
 
-    public void close() {
-        try {
+    /*
+        * Takes a reference for reading. Fails once the table has been released by everyone, in which case caller must not touch it.
+     */
+    public boolean acquire() {
+        while (true) {
+            int n = refs.get();
+            if (n <= 0)
+                return false;
+            if (refs.compareAndSet(n, n + 1))
+                return true;
+        }
+    }
 
-            dataOut.close();
-            indexWriter.close();
-            dataSeeker.close();
-        } catch(IOException e) {
-            System.out.println(e.getMessage());
+    public void release() {
+        if (refs.decrementAndGet() == 0) {
+            close();
+            if (obsolete)
+                deleteFromDisk();
+        }
+    }
+
+    /*
+        * Called by compaction for its input tables. Files go away once no Version (and so no reader) references the table anymore.
+     */
+    public void markObsolete() {
+        obsolete = true;
+    }
+
+    private void deleteFromDisk() {
+        if (legacy)
+            SSTManager.deleteFolder(file);
+        else
+            file.delete();
+    }
+
+    /*
+        * There is no public API to unmap a MappedByteBuffer before it gets garbage collected. Unsafe.invokeCleaner does it right away,
+          which matters because compaction keeps dropping tables and we don't want address space and deleted files hanging around
+          until next GC. If it's not available we just fall back to waiting for GC.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field f = unsafeClass.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            Object unsafe = f.get(null);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
         }
     }
 
     public String get(String key) throws IOException {
-        if (!bloomFilter.mightContain(key))
+        return get(new LookupKey(key));
+    }
+
+    /*
+        * null means this table knows nothing about key, MemTable.TOMBSTONE means it was deleted here and older tables must not be asked.
+     */
+    public String get(LookupKey lookup) throws IOException {
+        if (!mayContainKey(lookup))
+            return null;
+
+        if (bloomFilter != null && !bloomFilter.mightContain(lookup.hash()))
+            return null;
+
+        if (legacy)
+            return getLegacy(lookup.key());
+
+        if (entryCount == 0)
             return null;
 
-        Entry<String, Long> nearest = null;
-        for(Map.Entry<String, Long> e : indexMap.entrySet()){
-            if(e.getKey().compareTo(key) <= 0 )
-                nearest = e;
-            else
+        byte[] target = lookup.bytes();
+        int blockNo = index.floor(target);
+        if (blockNo < 0)
+            return null;
+
+        ByteBuffer block = readBlock(index.offset(blockNo), index.length(blockNo), true);
+
+        /*
+            * Entries inside a block are sorted as well, so scan stops as soon as we walk past the key. Keys are compared as raw bytes
+              in place (heap block or mapped file, doesn't matter), no String gets created unless we actually found the key.
+        */
+        int pos = 0;
+        int limit = block.limit();
+        while (pos < limit) {
+            int keyLength = block.getInt(pos);
+            int valueLength = block.getInt(pos + 4);
+            byte type = block.get(pos + 8);
+            int keyStart = pos + ENTRY_HEADER_SIZE;
+
+            int cmp = compareKey(block, keyStart, keyLength, target);
+            if (cmp > 0)
                 break;
+
+            if (cmp == 0) {
+                if (type == TYPE_TOMBSTONE)
+                    return MemTable.TOMBSTONE;
+                if (type == TYPE_EXPIRING) {
+                    // expired means deleted, older tables may still hold a value that must not come back.
+                    if (block.getLong(keyStart + keyLength) <= System.currentTimeMillis())
+                        return MemTable.TOMBSTONE;
+                    return decode(block, keyStart + keyLength + 8, valueLength - 8);
+                }
+                return decode(block, keyStart + keyLength, valueLength);
+            }
+            pos = keyStart + keyLength + valueLength;
         }
 
-        long startOffset = (nearest == null) ? 0 : nearest.getValue();
-        dataSeeker.seek(startOffset);
+        return null;
+    }
+
+    private static int compareKey(ByteBuffer block, int start, int length, byte[] target) {
+        if (block.hasArray())
+            return Arrays.compareUnsigned(block.array(), block.arrayOffset() + start, block.arrayOffset() + start + length, target, 0, target.length);
+
+        int n = Math.min(length, target.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = Byte.compareUnsigned(block.get(start + i), target[i]);
+            if (cmp != 0)
+                return cmp;
+        }
+        return length - target.length;
+    }
+
+    private static String decode(ByteBuffer block, int start, int length) {
+        if (block.hasArray())
+            return new String(block.array(), block.arrayOffset() + start, length, StandardCharsets.UTF_8);
+
+        byte[] buf = new byte[length];
+        block.get(start, buf);
+        return new String(buf, StandardCharsets.UTF_8);
+    }
 
-        while (dataSeeker.getFilePointer() < dataSeeker.length()) {
-            int length = dataSeeker.readInt();
+    /*
+        * Returns block data (without trailer) as a buffer starting at 0. In mmap mode it's just a view over the mapping, otherwise
+          it comes from the block cache or gets read with pread and verified. Compaction scans pass fillCache = false so a big merge
+          doesn't flush out blocks that point reads actually need.
+    */
+    private ByteBuffer readBlock(long blockOffset, int blockLength, boolean fillCache) throws IOException {
+        if (mapped != null)
+            return verifyBlock(mapped.slice((int) blockOffset, blockLength + BLOCK_TRAILER_SIZE), blockLength, blockOffset);
+
+        if (blockCache != null) {
+            ByteBuffer cached = blockCache.get(cacheNamespace, id, blockOffset);
+            if (cached != null)
+                return cached;
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(blockLength + BLOCK_TRAILER_SIZE);
+        readFully(buf, blockOffset);
+        ByteBuffer block = verifyBlock(buf, blockLength, blockOffset);
+
+        if (blockCache != null && fillCache)
+            blockCache.put(cacheNamespace, id, blockOffset, block);
+        return block;
+    }
+
+    /*
+        * A single pread can return less than asked for, so keep reading from the advanced position until buffer is full.
+    */
+    private void readFully(ByteBuffer dst, long position) throws IOException {
+        dst.clear();
+        try {
+            while (dst.hasRemaining()) {
+                int n = channel.read(dst, position + dst.position());
+                if (n < 0)
+                    throw new EOFException("unexpected end of " + getSSTName() + " at offset " + (position + dst.position()));
+            }
+        } catch (ClosedByInterruptException e) {
+            reopenChannel();
+            throw e;
+        }
+        dst.flip();
+    }
+
+    /*
+        * FileChannel closes itself for everyone when a thread reading from it gets interrupted (e.g a cancelled get future).
+          Only the interrupted reader should fail, so the channel is swapped for a fresh one.
+    */
+    private synchronized void reopenChannel() throws IOException {
+        if (closed || channel.isOpen())
+            return;
+        Path path = legacy ? Paths.get(dirName, "sstable-" + padded + ".data") : file.toPath();
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    private ByteBuffer verifyBlock(ByteBuffer block, int blockLength, long blockOffset) throws IOException {
+        int expected = block.getInt(blockLength);
+
+        CRC32 crc = crcThreadLocal.get();
+        crc.reset();
+        block.limit(blockLength);
+        crc.update(block);
+        block.position(0);
+
+        if ((int) crc.getValue() != expected)
+            throw new IOException("checksum mismatch in " + getSSTName() + " block at offset " + blockOffset);
+        return block;
+    }
+
+    private String getLegacy(String key) throws IOException {
+        int nearest = index.floor(key);
+        long startOffset = (nearest < 0) ? 0 : index.offset(nearest);
+        long position = startOffset;
+        ByteBuffer lengthBuf = ByteBuffer.allocate(4);
+
+        while (position < fileLength) {
+            readFully(lengthBuf, position);
+            int length = lengthBuf.getInt();
             byte[] buf = new byte[length];
-            dataSeeker.readFully(buf);
+            readFully(ByteBuffer.wrap(buf), position + 4);
+            position += 4 + length;
 
             SSTWriteOuterClass.SSTWrite entry = SSTWriteOuterClass.SSTWrite.parseFrom(buf);
             String keyFromSST = entry.getKey();
@@ -208,11 +615,12 @@ public class SSTable {
                 * Generally, key and value pair could be deleted easily when using some kind of in memory data structure. But when data is already persisted,
                 to actually delete data, we need some kind of tombstone to mark that data as dead or should be deleted.
 
-                * Since, to find data in SST, we iterate through latest sorted string tables to get consistent data . So ,we can ensure that data would be marked as 
+                * Since, to find data in SST, we iterate through latest sorted string tables to get consistent data . So ,we can ensure that data would be marked as
                 deleted and when SST compaction occurs, this data would be permanently deleted.
             */
-            if (keyFromSST.equals(key) && entry.getIsTombstone() && entry.getValue().equals(""))
-                return null;
+            // before deletes went out of band, flush wrote them as a plain TOMBSTONE value, same test as LegacyTableIterator.
+            if (keyFromSST.equals(key) && (entry.getIsTombstone() || MemTable.TOMBSTONE.equals(entry.getValue())))
+                return MemTable.TOMBSTONE;
 
             /*
               * When comparing key to keyFromSST, if keyFromSST is bigger when compared lexicographically, then data that we need is not found because
@@ -228,13 +636,60 @@ public class SSTable {
         return null;
     }
 
+    /*
+        * Old folder tables never stored their bloom filter, so it's rebuilt once at open with a sequential pass over .data.
+          Costs one scan per legacy table at startup, but otherwise every negative lookup would have to walk into the table.
+     */
+    private void rebuildFilter(TableIterator it, StorageOptions options) throws IOException {
+        long[] hashes = new long[1024];
+        int count = 0;
+        long tombstones = 0;
+        String first = null;
+        String last = null;
+        try {
+            while (it.next()) {
+                if (count == hashes.length)
+                    hashes = Arrays.copyOf(hashes, count * 2);
+                hashes[count++] = BloomFilter.hash(it.buffer(), it.keyOffset(), it.keyLength());
+                if (it.isTombstone())
+                    tombstones++;
+
+                if (legacy) {
+                    last = decode(it.buffer(), it.keyOffset(), it.keyLength());
+                    if (first == null)
+                        first = last;
+                }
+            }
+        } finally {
+            it.close();
+        }
+
+        KeyFilter filter = options.getFilterType().create(count, options.getBloomBitsPerKey());
+        for (int i = 0; i < count; i++)
+            filter.add(hashes[i]);
+
+        entryCount = count;
+        tombstoneCount = tombstones;
+        bloomFilter = filter;
+
+        // keys came out in sorted order, so legacy tables get a key range for free.
+        if (legacy && first != null) {
+            minKey = first;
+            maxKey = last;
+            minKeyBytes = minKey.getBytes(StandardCharsets.UTF_8);
+            maxKeyBytes = maxKey.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
     public void loadFromIndexFile() throws IOException {
         String path = Paths.get(dirName, indexFile).toString();
-    
+
         List<String> lines = Files.readAllLines(Paths.get(path));
+        SparseIndex.Builder builder = new SparseIndex.Builder();
 
         if (lines == null || lines.isEmpty()) {
             System.out.println(this.dirName + " .index is empty");
+            index = builder.build();
             return;
         }
         for (String line : lines) {
@@ -246,8 +701,307 @@ public class SSTable {
         */
             String[] parts = line.split(Pattern.quote(DELIMITER), 2);
             if (parts.length == 2) {
-                indexMap.put(parts[0], Long.parseLong(parts[1]));
+                builder.add(parts[0], Long.parseLong(parts[1]), 0);
             }
         }
+        index = builder.build();
+    }
+
+    /*
+        * Sequential scan over every entry of the table in key order. Block tables are read with the same positional reads as get,
+          so a scan can run next to any number of concurrent readers.
+     */
+    public Iterator<Record> iterator() throws IOException {
+        return iterator(null, null);
+    }
+
+    /*
+        * Records with from <= key < to in byte order, a null bound is open. Decodes every entry into Strings, compaction uses
+          tableIterator instead.
+     */
+    public Iterator<Record> iterator(byte[] from, byte[] to) throws IOException {
+        return new RecordIterator(tableIterator(from, to));
+    }
+
+    /*
+        * Entries with from <= key < to in byte order, a null bound is open, exposed in place (see TableIterator). Block tables start
+          right at the block holding from, so compaction can split one table between several threads without each of them scanning it
+          from the start. Blocks are read without filling the block cache, into one buffer reused for the whole scan.
+     */
+    public TableIterator tableIterator(byte[] from, byte[] to) throws IOException {
+        if (!legacy)
+            return new BlockTableIterator(from, to);
+        return new LegacyTableIterator(from, to);
+    }
+
+    static int compareKeys(byte[] a, byte[] b) {
+        return Arrays.compareUnsigned(a, b);
+    }
+
+    public static final class Record {
+        public final String key;
+        public final String value;
+        public final boolean tombstone;
+        public final long expiresAt;
+
+        Record(String key, String value, boolean tombstone, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.tombstone = tombstone;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final class BlockTableIterator implements TableIterator {
+        private final byte[] from;
+        private final byte[] to;
+        private int nextBlock = 0;
+        private ByteBuffer block;
+        private byte[] scratch = new byte[0];
+        private int pos;
+        private int keyLength;
+        private int valueLength;
+        private byte type;
+        private boolean done = false;
+
+        BlockTableIterator(byte[] from, byte[] to) {
+            this.from = from;
+            this.to = to;
+            if (from != null && index.size() > 0)
+                nextBlock = Math.max(0, index.floor(from));
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (block != null && !done)
+                pos += ENTRY_HEADER_SIZE + keyLength + valueLength;
+
+            while (!done) {
+                if (block == null || pos >= block.limit()) {
+                    if (nextBlock >= index.size()) {
+                        done = true;
+                        break;
+                    }
+                    block = loadBlock(nextBlock++);
+                    pos = 0;
+                    continue;
+                }
+
+                keyLength = block.getInt(pos);
+                valueLength = block.getInt(pos + 4);
+                type = block.get(pos + 8);
+                int keyStart = pos + ENTRY_HEADER_SIZE;
+
+                if (to != null && compareKey(block, keyStart, keyLength, to) >= 0) {
+                    done = true;
+                    break;
+                }
+                if (from != null && compareKey(block, keyStart, keyLength, from) < 0) {
+                    pos = keyStart + keyLength + valueLength;
+                    continue;
+                }
+                return true;
+            }
+            return false;
+        }
+
+        private ByteBuffer loadBlock(int blockNo) throws IOException {
+            long blockOffset = index.offset(blockNo);
+            int blockLength = index.length(blockNo);
+            if (mapped != null || blockCache != null)
+                return readBlock(blockOffset, blockLength, false);
+
+            int size = blockLength + BLOCK_TRAILER_SIZE;
+            if (scratch.length < size)
+                scratch = new byte[Math.max(size, blockSize())];
+            ByteBuffer buf = ByteBuffer.wrap(scratch, 0, size).slice();
+            readFully(buf, blockOffset);
+            return verifyBlock(buf, blockLength, blockOffset);
+        }
+
+        @Override
+        public ByteBuffer buffer() {
+            return block;
+        }
+
+        @Override
+        public int keyOffset() {
+            return pos + ENTRY_HEADER_SIZE;
+        }
+
+        @Override
+        public int keyLength() {
+            return keyLength;
+        }
+
+        @Override
+        public int valueOffset() {
+            return pos + ENTRY_HEADER_SIZE + keyLength + (type == TYPE_EXPIRING ? 8 : 0);
+        }
+
+        @Override
+        public int valueLength() {
+            return type == TYPE_EXPIRING ? valueLength - 8 : valueLength;
+        }
+
+        @Override
+        public boolean isTombstone() {
+            return type == TYPE_TOMBSTONE;
+        }
+
+        @Override
+        public long expiresAt() {
+            return type == TYPE_EXPIRING ? block.getLong(pos + ENTRY_HEADER_SIZE + keyLength) : 0;
+        }
+
+        @Override
+        public void close() {
+            done = true;
+        }
+    }
+
+    // biggest block in the table, so a scan allocates its read buffer once.
+    private int blockSize() {
+        int max = 0;
+        for (int i = 0; i < index.size(); i++)
+            max = Math.max(max, index.length(i) + BLOCK_TRAILER_SIZE);
+        return max;
+    }
+
+    /*
+        * Old folder tables are protobuf records and can only be read front to back, so every entry still gets parsed into objects here.
+          Key and value are then encoded into one reused buffer to look like a block entry to the caller.
+     */
+    private final class LegacyTableIterator implements TableIterator {
+        private final DataInputStream dis;
+        private final byte[] from;
+        private final byte[] to;
+        private byte[] scratch = new byte[256];
+        private ByteBuffer buffer = ByteBuffer.wrap(scratch);
+        private int keyLength;
+        private int valueLength;
+        private boolean tombstone;
+        private boolean done = false;
+
+        LegacyTableIterator(byte[] from, byte[] to) throws IOException {
+            String dataPath = Paths.get(dirName, "sstable-" + padded + ".data").toString();
+            this.dis = new DataInputStream(new BufferedInputStream(new FileInputStream(dataPath)));
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            while (!done) {
+                int len;
+                try {
+                    len = dis.readInt();
+                } catch (EOFException eof) {
+                    close();
+                    break;
+                }
+                byte[] buf = new byte[len];
+                dis.readFully(buf);
+
+                SSTWriteOuterClass.SSTWrite msg = SSTWriteOuterClass.SSTWrite.parseFrom(buf);
+                byte[] k = msg.getKey().getBytes(StandardCharsets.UTF_8);
+                if (to != null && compareKeys(k, to) >= 0) {
+                    close();
+                    break;
+                }
+                if (from != null && compareKeys(k, from) < 0)
+                    continue;
+
+                byte[] v = msg.getValue().getBytes(StandardCharsets.UTF_8);
+                if (scratch.length < k.length + v.length) {
+                    scratch = new byte[Math.max(k.length + v.length, scratch.length * 2)];
+                    buffer = ByteBuffer.wrap(scratch);
+                }
+                System.arraycopy(k, 0, scratch, 0, k.length);
+                System.arraycopy(v, 0, scratch, k.length, v.length);
+                keyLength = k.length;
+                valueLength = v.length;
+                tombstone = msg.getIsTombstone() || MemTable.TOMBSTONE.equals(msg.getValue());
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        @Override
+        public int keyOffset() {
+            return 0;
+        }
+
+        @Override
+        public int keyLength() {
+            return keyLength;
+        }
+
+        @Override
+        public int valueOffset() {
+            return keyLength;
+        }
+
+        @Override
+        public int valueLength() {
+            return valueLength;
+        }
+
+        @Override
+        public boolean isTombstone() {
+            return tombstone;
+        }
+
+        @Override
+        public long expiresAt() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+            done = true;
+            try { dis.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    // String view over a TableIterator, for callers that want whole records and don't mind the allocations.
+    private static final class RecordIterator implements Iterator<Record> {
+        private final TableIterator it;
+        private boolean fetched = false;
+        private boolean hasNext;
+
+        RecordIterator(TableIterator it) {
+            this.it = it;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!fetched) {
+                try {
+                    hasNext = it.next();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                fetched = true;
+                if (!hasNext)
+                    it.close();
+            }
+            return hasNext;
+        }
+
+        @Override
+        public Record next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            fetched = false;
+            ByteBuffer buf = it.buffer();
+            return new Record(decode(buf, it.keyOffset(), it.keyLength()), decode(buf, it.valueOffset(), it.valueLength()), it.isTombstone(),
+                    it.expiresAt());
+        }
     }
 }
@@ -0,0 +1,362 @@
+package dev.bytekv.core.storage;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/*
+    * SSTableWriter builds a single block based .sst file out of already sorted entries. Layout of the file is:
+
+        [data block 0][data block 1] ... [data block n][filter block][index block][meta block][footer]
+
+    * data block  : entries packed back to back until the block crosses blockSize, followed by a CRC32 of the block.
+                    entry = keyLength(int) | valueLength(int) | type(byte) | key | value
+                    an expiring entry's value starts with expiresAt(long), counted in valueLength
+    * filter block: serialized filter (classic or blocked bloom, see KeyFilter) of every key (tombstones included) followed by a CRC32, so it's loaded on open instead of rebuilt.
+    * index block : count(int) followed by firstKeyLength(int) | firstKey | blockOffset(long) | blockLength(int) for every data block.
+    * meta block  : entryCount(long) | minKeyLength(int) | minKey | maxKeyLength(int) | maxKey | filterOffset(long) | filterLength(int) | filterType(byte)
+                    | minSequence(long) | maxSequence(long) | tombstoneCount(long)
+    * footer      : indexOffset(long) | indexLength(int) | metaOffset(long) | metaLength(int) | formatVersion(int) | magic(long)
+
+    * Footer is fixed size, so a reader only has to read the tail of the file to find everything else. Since index is tiny compared to data,
+      it is kept in memory and a point read only touches one data block.
+
+    * Everything is written into a .tmp file first and renamed once footer is on disk, so a crash in the middle of a flush never leaves a
+      half written table behind that looks valid.
+ */
+
+public class SSTableWriter {
+
+    private final int id;
+    private final int blockSize;
+    private final StorageOptions options;
+    private final File file;
+    private final File tmpFile;
+    private final FileOutputStream fileOut;
+    private final DataOutputStream out;
+
+    private final BlockBuffer blockBuffer;
+    private final DataOutputStream block;
+    private final CRC32 crc = new CRC32();
+
+    private final List<byte[]> indexKeys = new ArrayList<>();
+    private final List<long[]> indexHandles = new ArrayList<>();
+
+    private final KeyFilter bloomFilter;
+
+    private byte[] blockFirstKey;
+    private byte[] minKey;
+
+    // copy of the last added key, reused for every entry. Compaction hands in keys that are only valid until its next step.
+    private byte[] lastKey = new byte[64];
+    private ByteBuffer lastKeyBuffer = ByteBuffer.wrap(lastKey);
+    private int lastKeyLength = -1;
+    private byte[] scratch = new byte[256];
+    private long entryCount = 0;
+    private long tombstoneCount = 0;
+    private long minSequence;
+    private long maxSequence;
+    private long offset = 0;
+    private boolean finished = false;
+
+    /*
+        * expectedKeys sizes the bloom filter. Flush knows it exactly, compaction passes the sum of its inputs which is
+          an upper bound once duplicate keys collapse.
+     */
+    public SSTableWriter(int id, long expectedKeys, StorageOptions options) throws IOException {
+        this(id, expectedKeys, options, RateLimiter.Priority.HIGH);
+    }
+
+    /*
+        * priority is what the table's bytes are charged as on options' RateLimiter (if any): HIGH for flushes, LOW for compaction.
+     */
+    public SSTableWriter(int id, long expectedKeys, StorageOptions options, RateLimiter.Priority priority) throws IOException {
+        this.id = id;
+        this.bloomFilter = options.getFilterType().create(expectedKeys, options.getBloomBitsPerKey());
+        this.blockSize = options.getBlockSize();
+        this.options = options;
+        this.minSequence = id;
+        this.maxSequence = id;
+
+        File dir = new File(options.getDataDir());
+        dir.mkdirs();
+
+        this.file = new File(dir, SSTable.fileName(id));
+        this.tmpFile = new File(dir, SSTable.fileName(id) + ".tmp");
+
+        this.fileOut = new FileOutputStream(tmpFile);
+        OutputStream sink = fileOut;
+        if (options.getRateLimiter() != null)
+            sink = new RateLimitedOutputStream(fileOut, options.getRateLimiter(), priority);
+        this.out = new DataOutputStream(new BufferedOutputStream(sink, 64 * 1024));
+        this.blockBuffer = new BlockBuffer(blockSize + 1024);
+        this.block = new DataOutputStream(blockBuffer);
+    }
+
+    public void put(String key, String value) throws IOException {
+        add(key, value, SSTable.TYPE_VALUE, 0);
+    }
+
+    /*
+        * Value that reads stop returning (and a CompactionFilter like TtlCompactionFilter may drop) after expiresAt, epoch millis.
+     */
+    public void put(String key, String value, long expiresAt) throws IOException {
+        add(key, value, SSTable.TYPE_EXPIRING, expiresAt);
+    }
+
+    public void delete(String key) throws IOException {
+        add(key, "", SSTable.TYPE_TOMBSTONE, 0);
+    }
+
+    private void add(String key, String value, byte type, long expiresAt) throws IOException {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        byte[] v = value.getBytes(StandardCharsets.UTF_8);
+        add(ByteBuffer.wrap(k), 0, k.length, ByteBuffer.wrap(v), 0, v.length, type, expiresAt);
+    }
+
+    /*
+        * Copies the current entry of it as is, key and value never leave byte form. This is what compaction uses, together with
+          MergingIterator a merge produces no garbage per entry.
+     */
+    public void add(TableIterator it) throws IOException {
+        if (it.isTombstone())
+            delete(it);
+        else
+            add(it.buffer(), it.keyOffset(), it.keyLength(), it.buffer(), it.valueOffset(), it.valueLength(), typeOf(it), it.expiresAt());
+    }
+
+    /*
+        * Current entry of it with value swapped for a new one, expiry is kept. For a CompactionFilter's CHANGE_VALUE.
+     */
+    public void add(TableIterator it, byte[] value) throws IOException {
+        add(it.buffer(), it.keyOffset(), it.keyLength(), ByteBuffer.wrap(value), 0, value.length, typeOf(it), it.expiresAt());
+    }
+
+    /*
+        * Tombstone for the key of it's current entry, whatever that entry was.
+     */
+    public void delete(TableIterator it) throws IOException {
+        add(it.buffer(), it.keyOffset(), it.keyLength(), it.buffer(), 0, 0, SSTable.TYPE_TOMBSTONE, 0);
+    }
+
+    private static byte typeOf(TableIterator it) {
+        return it.expiresAt() != 0 ? SSTable.TYPE_EXPIRING : SSTable.TYPE_VALUE;
+    }
+
+    private void add(ByteBuffer kb, int ko, int kl, ByteBuffer vb, int vo, int vl, byte type, long expiresAt) throws IOException {
+        if (finished)
+            throw new IllegalStateException("SSTable writer is already finished");
+
+        if (lastKeyLength >= 0 && TableIterator.compareKeys(lastKeyBuffer, 0, lastKeyLength, kb, ko, kl) >= 0)
+            throw new IllegalArgumentException("keys must be added in strictly increasing order: " + StandardCharsets.UTF_8.decode(kb.slice(ko, kl)));
+
+        block.writeInt(kl);
+        block.writeInt(type == SSTable.TYPE_EXPIRING ? vl + 8 : vl);
+        block.writeByte(type);
+        write(kb, ko, kl);
+        if (type == SSTable.TYPE_EXPIRING)
+            block.writeLong(expiresAt);
+        write(vb, vo, vl);
+
+        if (kl > lastKey.length) {
+            lastKey = new byte[Math.max(kl, lastKey.length * 2)];
+            lastKeyBuffer = ByteBuffer.wrap(lastKey);
+        }
+        kb.get(ko, lastKey, 0, kl);
+        lastKeyLength = kl;
+
+        if (blockFirstKey == null)
+            blockFirstKey = Arrays.copyOf(lastKey, kl);
+        if (minKey == null)
+            minKey = blockFirstKey;
+        entryCount++;
+        if (type == SSTable.TYPE_TOMBSTONE)
+            tombstoneCount++;
+
+        // tombstones go into the filter as well, otherwise a delete would be skipped and an older table would resurrect the key.
+        bloomFilter.add(BloomFilter.hash(kb, ko, kl));
+
+        if (blockBuffer.size() >= blockSize)
+            finishBlock();
+    }
+
+    // heap buffers are written straight from their array, direct ones (mmapped tables) go through one reused scratch array.
+    private void write(ByteBuffer src, int offset, int length) throws IOException {
+        if (src.hasArray()) {
+            block.write(src.array(), src.arrayOffset() + offset, length);
+            return;
+        }
+        if (length > scratch.length)
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        src.get(offset, scratch, 0, length);
+        block.write(scratch, 0, length);
+    }
+
+    private void finishBlock() throws IOException {
+        if (blockBuffer.size() == 0)
+            return;
+
+        int length = blockBuffer.size();
+        crc.reset();
+        crc.update(blockBuffer.array(), 0, length);
+
+        out.write(blockBuffer.array(), 0, length);
+        out.writeInt((int) crc.getValue());
+
+        indexKeys.add(blockFirstKey);
+        indexHandles.add(new long[]{offset, length});
+
+        offset += length + SSTable.BLOCK_TRAILER_SIZE;
+        blockBuffer.reset();
+        blockFirstKey = null;
+    }
+
+    /*
+        * Writes out index, meta and footer, fsyncs and atomically moves the file into place. Returned SSTable is ready to serve reads.
+     */
+    public SSTable finish() throws IOException {
+        return finish(SSTable.newCacheNamespace(options));
+    }
+
+    // same, the table caching its blocks under cacheNamespace (its store's, see BlockCache.newNamespace).
+    SSTable finish(long cacheNamespace) throws IOException {
+        finishBlock();
+        finished = true;
+
+        long filterOffset = offset;
+        ByteArrayOutputStream filterBytes = new ByteArrayOutputStream();
+        bloomFilter.writeTo(new DataOutputStream(filterBytes));
+        byte[] filter = filterBytes.toByteArray();
+        crc.reset();
+        crc.update(filter);
+        out.write(filter);
+        out.writeInt((int) crc.getValue());
+        offset += filter.length + SSTable.BLOCK_TRAILER_SIZE;
+
+        long indexOffset = offset;
+        ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(indexBytes);
+        index.writeInt(indexKeys.size());
+        for (int i = 0; i < indexKeys.size(); i++) {
+            byte[] k = indexKeys.get(i);
+            index.writeInt(k.length);
+            index.write(k);
+            index.writeLong(indexHandles.get(i)[0]);
+            index.writeInt((int) indexHandles.get(i)[1]);
+        }
+        out.write(indexBytes.toByteArray());
+        offset += indexBytes.size();
+
+        long metaOffset = offset;
+        ByteArrayOutputStream metaBytes = new ByteArrayOutputStream();
+        DataOutputStream meta = new DataOutputStream(metaBytes);
+        meta.writeLong(entryCount);
+        writeKey(meta, minKey);
+        writeKey(meta, lastKeyLength < 0 ? null : Arrays.copyOf(lastKey, lastKeyLength));
+        meta.writeLong(filterOffset);
+        meta.writeInt(filter.length);
+        meta.writeByte(bloomFilter.type().id());
+        meta.writeLong(minSequence);
+        meta.writeLong(maxSequence);
+        meta.writeLong(tombstoneCount);
+        out.write(metaBytes.toByteArray());
+        offset += metaBytes.size();
+
+        out.writeLong(indexOffset);
+        out.writeInt(indexBytes.size());
+        out.writeLong(metaOffset);
+        out.writeInt(metaBytes.size());
+        out.writeInt(SSTable.FORMAT_VERSION);
+        out.writeLong(SSTable.MAGIC);
+
+        out.flush();
+        fileOut.getFD().sync();
+        out.close();
+
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        // the MANIFEST edit naming this table comes next, the table's directory entry has to be on disk before it.
+        Manifest.syncDirectory(file.getParentFile());
+
+        return new SSTable(id, file, bloomFilter, options, cacheNamespace);
+    }
+
+    public void abort() {
+        finished = true;
+        try {
+            out.close();
+        } catch (IOException ignored) {}
+        tmpFile.delete();
+    }
+
+    /*
+        * Flushed tables cover just their own id. Compaction sets the range spanned by its inputs.
+     */
+    public void setSequenceRange(long minSequence, long maxSequence) {
+        this.minSequence = minSequence;
+        this.maxSequence = maxSequence;
+    }
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    public long getTombstoneCount() {
+        return tombstoneCount;
+    }
+
+    public long getFileSize() {
+        return offset + blockBuffer.size();
+    }
+
+    private static void writeKey(DataOutputStream dos, byte[] key) throws IOException {
+        if (key == null) {
+            dos.writeInt(0);
+            return;
+        }
+        dos.writeInt(key.length);
+        dos.write(key);
+    }
+
+    // block is built in place and written from the internal array, no copy per block.
+    private static final class BlockBuffer extends ByteArrayOutputStream {
+        BlockBuffer(int size) {
+            super(size);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    /*
+        * Sits under the 64KB buffer, so the limiter is asked once per buffer flush and not once per entry.
+     */
+    private static final class RateLimitedOutputStream extends FilterOutputStream {
+        private final RateLimiter limiter;
+        private final RateLimiter.Priority priority;
+
+        RateLimitedOutputStream(OutputStream out, RateLimiter limiter, RateLimiter.Priority priority) {
+            super(out);
+            this.limiter = limiter;
+            this.priority = priority;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            limiter.request(1, priority);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            limiter.request(len, priority);
+            out.write(b, off, len);
+        }
+    }
+}
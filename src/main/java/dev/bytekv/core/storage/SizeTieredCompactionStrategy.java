@@ -0,0 +1,71 @@
+package dev.bytekv.core.storage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+    * Size tiered compaction, the way ByteKV always compacted: every level is a tier of similarly sized tables that may overlap. Once a
+      tier has compactionMinMergeWidth tables, its oldest ones (up to compactionMaxMergeWidth) are merged into one table of the next
+      tier, so tables grow by about minMergeWidth times per tier. The last tier merges into itself.
+
+    * Tiers only ever receive data older than what stays above them, and the merged tables are the oldest of their tier, so reads can
+      keep checking tiers top down and tables of a tier newest first.
+
+    * When no tier is full, a table that is mostly tombstones and has nothing older under it is rewritten on its own to drop them.
+
+    * Tradeoffs:
+    - Each byte is rewritten once per tier, far less than leveled, which is what ingest heavy stores want.
+    - Tables of a tier overlap, so a lookup may have to check every table of every tier (filters keep most of those cheap), and
+      overwritten keys stay around until their tiers get merged.
+ */
+
+public class SizeTieredCompactionStrategy implements CompactionStrategy {
+
+    private final StorageOptions options;
+
+    public SizeTieredCompactionStrategy(StorageOptions options) {
+        this.options = options;
+    }
+
+    @Override
+    public Type type() {
+        return Type.SIZE_TIERED;
+    }
+
+    @Override
+    public Compaction pick(Version v, long oldestPendingFlush) {
+        for (int level = 0; level < v.levelCount(); level++) {
+            List<SSTable> tier = candidates(v, level, oldestPendingFlush);
+            if (tier.size() < options.getCompactionMinMergeWidth())
+                continue;
+
+            List<SSTable> inputs = tier.subList(0, Math.min(tier.size(), options.getCompactionMaxMergeWidth()));
+            int outputLevel = Math.min(level + 1, options.getNumLevels() - 1);
+            return new Compaction(level, outputLevel, inputs, Long.MAX_VALUE);
+        }
+        return CompactionStrategy.tombstoneCompaction(v, options, oldestPendingFlush);
+    }
+
+    @Override
+    public long pendingCompactionBytes(Version v) {
+        long pending = 0;
+        for (int level = 0; level < v.levelCount(); level++) {
+            List<SSTable> tier = candidates(v, level, Long.MAX_VALUE);
+            if (tier.size() < options.getCompactionMinMergeWidth())
+                continue;
+            for (SSTable sst : tier.subList(0, Math.min(tier.size(), options.getCompactionMaxMergeWidth())))
+                pending += sst.getFileSize();
+        }
+        return pending;
+    }
+
+    // tables of a tier, oldest first.
+    private static List<SSTable> candidates(Version v, int level, long oldestPendingFlush) {
+        List<SSTable> tier = new ArrayList<>(v.tables(level));
+        if (level == 0)
+            tier.removeIf(sst -> sst.getMaxSequence() >= oldestPendingFlush);
+        tier.sort(Comparator.comparingLong(SSTable::getMaxSequence));
+        return tier;
+    }
+}
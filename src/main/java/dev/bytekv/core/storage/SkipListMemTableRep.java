@@ -0,0 +1,226 @@
+package dev.bytekv.core.storage;
+
+import java.nio.ByteBuffer;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    * The original memtable: a ConcurrentSkipListMap of Strings. Size is estimated as chars of key and value plus a fixed overhead
+      per entry for the skip list node and the String objects.
+
+    * Keys are kept in code point order, which is the unsigned UTF-8 byte order SSTables are written in (plain String.compareTo
+      differs for chars above the surrogates). That way a sealed map already is in table order and flush walks it directly, UTF-8
+      encoding each entry into one reused buffer. The two orders only agree for well formed UTF-16, MemTable.checkKey keeps keys
+      with unpaired surrogates out.
+
+    * Tradeoffs:
+    - Several heap objects per entry, with big write buffers that is a lot for the GC to trace and promote.
+    - Size is an estimate, Latin-1 strings take about a byte per char on heap, others about two.
+ */
+
+class SkipListMemTableRep implements MemTableRep {
+
+    // skip list node and index share, the Versioned holder, two String objects and their arrays, roughly.
+    private static final int ENTRY_OVERHEAD = 104;
+
+    static final Comparator<String> UTF8_ORDER = SkipListMemTableRep::compareUtf8;
+
+    private final ConcurrentSkipListMap<String, Versioned> map = new ConcurrentSkipListMap<>(UTF8_ORDER);
+    // ConcurrentSkipListMap.size() walks the whole map, so both are counted on the side.
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicInteger entries = new AtomicInteger();
+
+    @Override
+    public long put(String key, String value, long expiresAt, long sequence) {
+        Versioned next = new Versioned(value, expiresAt, sequence);
+        long delta;
+        while (true) {
+            Versioned old = map.putIfAbsent(key, next);
+            if (old == null) {
+                delta = key.length() + next.length() + ENTRY_OVERHEAD;
+                entries.incrementAndGet();
+                break;
+            }
+            if (old.sequence > sequence)
+                return 0;
+            if (map.replace(key, old, next)) {
+                delta = next.length() - old.length();
+                break;
+            }
+        }
+        bytes.addAndGet(delta);
+        return delta;
+    }
+
+    @Override
+    public Stored get(String key) {
+        return map.get(key);
+    }
+
+    @Override
+    public int size() {
+        return entries.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public long approximateMemoryUsage() {
+        return bytes.get();
+    }
+
+    @Override
+    public TableIterator iterator() {
+        return new MapIterator(map.entrySet().iterator());
+    }
+
+    // compared by identity in map.replace, which is what makes the sequence check and the swap one atomic step.
+    private static final class Versioned extends Stored {
+        final long sequence;
+
+        Versioned(String value, long expiresAt, long sequence) {
+            super(value, expiresAt);
+            this.sequence = sequence;
+        }
+
+        int length() {
+            return value == null ? 0 : value.length();
+        }
+    }
+
+    /*
+        * UTF-16 compare with surrogates moved above U+E000..U+FFFF, the same order as comparing UTF-8 bytes unsigned.
+     */
+    static int compareUtf8(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        for (int i = 0; i < n; i++) {
+            char x = a.charAt(i);
+            char y = b.charAt(i);
+            if (x != y) {
+                if (x >= Character.MIN_SURROGATE && y >= Character.MIN_SURROGATE)
+                    return fixup(x) - fixup(y);
+                return x - y;
+            }
+        }
+        return a.length() - b.length();
+    }
+
+    private static int fixup(char c) {
+        return c >= 0xE000 ? c - 0x800 : c + 0x2000;
+    }
+
+    /*
+        * Walks the map itself, no snapshot: a sealed rep no longer changes. Key and value of each entry are encoded to UTF-8 into
+          one scratch array reused for the whole flush, so nothing is allocated per entry.
+     */
+    private static final class MapIterator implements TableIterator {
+        private final Iterator<Map.Entry<String, Versioned>> entries;
+        private byte[] scratch = new byte[256];
+        private ByteBuffer buffer = ByteBuffer.wrap(scratch);
+        private int keyLength;
+        private int valueLength;
+        private boolean tombstone;
+        private long expiresAt;
+
+        MapIterator(Iterator<Map.Entry<String, Versioned>> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public boolean next() {
+            if (!entries.hasNext())
+                return false;
+
+            Map.Entry<String, Versioned> entry = entries.next();
+            Versioned stored = entry.getValue();
+            tombstone = stored.isTombstone();
+            expiresAt = stored.expiresAt;
+
+            String key = entry.getKey();
+            String value = tombstone ? "" : stored.value;
+            // at most 3 bytes per char, a surrogate pair is 2 chars for 4 bytes.
+            int max = 3 * (key.length() + value.length());
+            if (max > scratch.length) {
+                scratch = new byte[Math.max(max, scratch.length * 2)];
+                buffer = ByteBuffer.wrap(scratch);
+            }
+
+            keyLength = encode(key, 0);
+            valueLength = encode(value, keyLength) - keyLength;
+            return true;
+        }
+
+        // UTF-8 of s written at pos. Returns the position after it. Lone surrogates become '?' like getBytes does.
+        private int encode(String s, int pos) {
+            byte[] out = scratch;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    out[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    out[pos++] = (byte) (0xC0 | (c >> 6));
+                    out[pos++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    out[pos++] = (byte) (0xF0 | (cp >> 18));
+                    out[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    out[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    out[pos++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    out[pos++] = '?';
+                } else {
+                    out[pos++] = (byte) (0xE0 | (c >> 12));
+                    out[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    out[pos++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            return pos;
+        }
+
+        @Override
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        @Override
+        public int keyOffset() {
+            return 0;
+        }
+
+        @Override
+        public int keyLength() {
+            return keyLength;
+        }
+
+        @Override
+        public int valueOffset() {
+            return keyLength;
+        }
+
+        @Override
+        public int valueLength() {
+            return valueLength;
+        }
+
+        @Override
+        public boolean isTombstone() {
+            return tombstone;
+        }
+
+        @Override
+        public long expiresAt() {
+            return expiresAt;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package dev.bytekv.core.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+    * In-memory index of an SSTable: first key of every block (or every sparse point for legacy tables) with the offset and length it points to.
+
+    * Instead of a map of String -> Long, all keys are packed back to back into one byte[] with an int[] of start positions, and offsets and lengths
+      live in parallel primitive arrays. So a table with thousands of blocks costs a handful of arrays instead of thousands of String, Long and
+      map node objects, and a lookup is a plain binary search comparing bytes in place.
+
+    * Entries must be added in sorted order, which is how both writers produce them anyway.
+ */
+
+public final class SparseIndex {
+
+    private final byte[] keys;
+    private final int[] keyStarts;
+    private final long[] offsets;
+    private final int[] lengths;
+    private final int size;
+
+    private SparseIndex(byte[] keys, int[] keyStarts, long[] offsets, int[] lengths, int size) {
+        this.keys = keys;
+        this.keyStarts = keyStarts;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long offset(int i) {
+        return offsets[i];
+    }
+
+    public int length(int i) {
+        return lengths[i];
+    }
+
+    public String key(int i) {
+        return new String(keys, keyStarts[i], keyStarts[i + 1] - keyStarts[i], StandardCharsets.UTF_8);
+    }
+
+    public byte[] keyBytes(int i) {
+        return Arrays.copyOfRange(keys, keyStarts[i], keyStarts[i + 1]);
+    }
+
+    /*
+        * Position of the last entry whose key is <= target, or -1 when target sorts before every entry.
+          That's the block (or sparse point) a point read has to start from, and the same position is where a scan from target starts.
+     */
+    public int floor(byte[] target) {
+        int lo = 0;
+        int hi = size - 1;
+        int found = -1;
+
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = Arrays.compareUnsigned(keys, keyStarts[mid], keyStarts[mid + 1], target, 0, target.length);
+            if (cmp <= 0) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    public int floor(String target) {
+        return floor(target.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public long memoryUsage() {
+        return keys.length + 4L * keyStarts.length + 8L * offsets.length + 4L * lengths.length;
+    }
+
+    public static final class Builder {
+        private byte[] keys = new byte[1024];
+        private int[] keyStarts = new int[65];
+        private long[] offsets = new long[64];
+        private int[] lengths = new int[64];
+        private int size = 0;
+        private int keyBytes = 0;
+
+        public Builder add(byte[] key, long offset, int length) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+                keyStarts = Arrays.copyOf(keyStarts, size * 2 + 1);
+            }
+            if (keyBytes + key.length > keys.length)
+                keys = Arrays.copyOf(keys, Math.max(keys.length * 2, keyBytes + key.length));
+
+            System.arraycopy(key, 0, keys, keyBytes, key.length);
+            keyStarts[size] = keyBytes;
+            keyBytes += key.length;
+            offsets[size] = offset;
+            lengths[size] = length;
+            size++;
+            keyStarts[size] = keyBytes;
+            return this;
+        }
+
+        public Builder add(String key, long offset, int length) {
+            return add(key.getBytes(StandardCharsets.UTF_8), offset, length);
+        }
+
+        public SparseIndex build() {
+            return new SparseIndex(
+                Arrays.copyOf(keys, keyBytes),
+                Arrays.copyOf(keyStarts, size + 1),
+                Arrays.copyOf(offsets, size),
+                Arrays.copyOf(lengths, size),
+                size);
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package dev.bytekv.core.storage;
+
+/*
+    * Knobs for the storage engine. Everything has a sane default so SSTManager can still be created without passing anything,
+      but bigger boxes usually want to tune these.
+ */
+
+public class StorageOptions {
+
+    private String dataDir = "SST";
+    private int blockSize = 4 * 1024;
+
+    private boolean mmapReads = false;
+    private long mmapMaxFileSize = 512L * 1024 * 1024;
+
+    private int bloomBitsPerKey = 10;
+    private KeyFilter.Type filterType = KeyFilter.Type.BLOOM;
+
+    private BlockCache blockCache = new BlockCache(32L * 1024 * 1024);
+    private RateLimiter rateLimiter = null;
+
+    private int numLevels = 7;
+    private int level0CompactionTrigger = 4;
+    private long maxBytesForLevelBase = 10L * 1024 * 1024;
+    private int levelSizeMultiplier = 10;
+    private long targetFileSize = 2L * 1024 * 1024;
+
+    private CompactionStrategy.Type compactionStrategy = CompactionStrategy.Type.LEVELED;
+    private int compactionMinMergeWidth = 4;
+    private int compactionMaxMergeWidth = 32;
+    private int universalSizeRatio = 1;
+    private int universalMaxSizeAmplificationPercent = 200;
+    private int level0SlowdownWritesTrigger = 20;
+    private int level0StopWritesTrigger = 36;
+    private long softPendingCompactionBytesLimit = 64L * 1024 * 1024 * 1024;
+    private long hardPendingCompactionBytesLimit = 256L * 1024 * 1024 * 1024;
+    private long delayedWriteRate = 16L * 1024 * 1024;
+    private int maxSubcompactions = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private double tombstoneCompactionRatio = 0.5;
+    private CompactionFilter compactionFilter = new TtlCompactionFilter();
+    private int maxImmutableMemTables = 2;
+    private int maxBackgroundFlushes = 1;
+    private long writeBufferSize = 64L * 1024 * 1024;
+    private WriteBufferManager writeBufferManager = null;
+    private MemTableRep.Type memTableRep = MemTableRep.Type.SKIP_LIST;
+
+    public String getDataDir() {
+        return dataDir;
+    }
+
+    public void setDataDir(String dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public void setBlockSize(int blockSize) {
+        if (blockSize < 512)
+            throw new IllegalArgumentException("blockSize must be at least 512 bytes");
+        this.blockSize = blockSize;
+    }
+
+    public boolean isMmapReads() {
+        return mmapReads;
+    }
+
+    public void setMmapReads(boolean mmapReads) {
+        this.mmapReads = mmapReads;
+    }
+
+    /*
+        * Tables bigger than this are read with pread even when mmapReads is on, so a few huge compacted tables don't eat up address space.
+     */
+    public long getMmapMaxFileSize() {
+        return mmapMaxFileSize;
+    }
+
+    public void setMmapMaxFileSize(long mmapMaxFileSize) {
+        this.mmapMaxFileSize = mmapMaxFileSize;
+    }
+
+    public BlockCache getBlockCache() {
+        return blockCache;
+    }
+
+    /*
+        * Same BlockCache instance can be handed to several stores so they share one memory budget, each store caches its blocks under
+          a namespace of its own so equal table ids don't clash. null turns block caching off.
+     */
+    public void setBlockCache(BlockCache blockCache) {
+        this.blockCache = blockCache;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /*
+        * Limits write speed of flushes and compactions. Like BlockCache it can be shared by several stores on the same disk. null (default)
+          writes at full speed.
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public int getBloomBitsPerKey() {
+        return bloomBitsPerKey;
+    }
+
+    /*
+        * Bits of bloom filter per key, 10 gives about 1% false positives. Number of probes is derived from it.
+     */
+    public void setBloomBitsPerKey(int bloomBitsPerKey) {
+        if (bloomBitsPerKey < 1)
+            throw new IllegalArgumentException("bloomBitsPerKey must be positive");
+        this.bloomBitsPerKey = bloomBitsPerKey;
+    }
+
+    public KeyFilter.Type getFilterType() {
+        return filterType;
+    }
+
+    /*
+        * Filter type used for newly written tables. Existing tables keep whatever type their meta block says.
+     */
+    public void setFilterType(KeyFilter.Type filterType) {
+        this.filterType = filterType;
+    }
+
+    public int getNumLevels() {
+        return numLevels;
+    }
+
+    public void setNumLevels(int numLevels) {
+        if (numLevels < 2)
+            throw new IllegalArgumentException("numLevels must be at least 2");
+        this.numLevels = numLevels;
+    }
+
+    public int getLevel0CompactionTrigger() {
+        return level0CompactionTrigger;
+    }
+
+    /*
+        * Number of level 0 tables that starts a level 0 -> level 1 compaction. Level 0 tables overlap, so every one of them costs a
+          lookup, this is what bounds read amplification on top of the one table per deeper level.
+     */
+    public void setLevel0CompactionTrigger(int level0CompactionTrigger) {
+        if (level0CompactionTrigger < 1)
+            throw new IllegalArgumentException("level0CompactionTrigger must be positive");
+        this.level0CompactionTrigger = level0CompactionTrigger;
+    }
+
+    public long getMaxBytesForLevelBase() {
+        return maxBytesForLevelBase;
+    }
+
+    /*
+        * Size target of level 1. Every deeper level may hold levelSizeMultiplier times more than the one above it.
+     */
+    public void setMaxBytesForLevelBase(long maxBytesForLevelBase) {
+        this.maxBytesForLevelBase = maxBytesForLevelBase;
+    }
+
+    public int getLevelSizeMultiplier() {
+        return levelSizeMultiplier;
+    }
+
+    public void setLevelSizeMultiplier(int levelSizeMultiplier) {
+        if (levelSizeMultiplier < 2)
+            throw new IllegalArgumentException("levelSizeMultiplier must be at least 2");
+        this.levelSizeMultiplier = levelSizeMultiplier;
+    }
+
+    /*
+        * Size target of level 1, level 2 ... Level 0 has no byte target, it is driven by table count.
+     */
+    public long getMaxBytesForLevel(int level) {
+        long target = maxBytesForLevelBase;
+        for (int i = 1; i < level; i++)
+            target *= levelSizeMultiplier;
+        return target;
+    }
+
+    public long getTargetFileSize() {
+        return targetFileSize;
+    }
+
+    /*
+        * Compaction cuts its output into tables of about this size, so a later compaction of one key range only rewrites a few small
+          tables of the next level instead of one huge one.
+     */
+    public void setTargetFileSize(long targetFileSize) {
+        this.targetFileSize = targetFileSize;
+    }
+
+    public CompactionStrategy.Type getCompactionStrategy() {
+        return compactionStrategy;
+    }
+
+    /*
+        * LEVELED for read heavy stores, SIZE_TIERED for ingest heavy ones, UNIVERSAL for TTL heavy data. Can be changed on an existing
+          store, the new strategy just starts from whatever layout is on disk.
+     */
+    public void setCompactionStrategy(CompactionStrategy.Type compactionStrategy) {
+        this.compactionStrategy = compactionStrategy;
+    }
+
+    public int getCompactionMinMergeWidth() {
+        return compactionMinMergeWidth;
+    }
+
+    /*
+        * Fewest tables (size tiered) or sorted runs (universal) merged at once.
+     */
+    public void setCompactionMinMergeWidth(int compactionMinMergeWidth) {
+        if (compactionMinMergeWidth < 2)
+            throw new IllegalArgumentException("compactionMinMergeWidth must be at least 2");
+        this.compactionMinMergeWidth = compactionMinMergeWidth;
+    }
+
+    public int getCompactionMaxMergeWidth() {
+        return compactionMaxMergeWidth;
+    }
+
+    public void setCompactionMaxMergeWidth(int compactionMaxMergeWidth) {
+        if (compactionMaxMergeWidth < 2)
+            throw new IllegalArgumentException("compactionMaxMergeWidth must be at least 2");
+        this.compactionMaxMergeWidth = compactionMaxMergeWidth;
+    }
+
+    public int getUniversalSizeRatio() {
+        return universalSizeRatio;
+    }
+
+    /*
+        * Percent slack when universal compaction decides if the next older run is "not bigger" than what it collected so far.
+     */
+    public void setUniversalSizeRatio(int universalSizeRatio) {
+        this.universalSizeRatio = universalSizeRatio;
+    }
+
+    public int getUniversalMaxSizeAmplificationPercent() {
+        return universalMaxSizeAmplificationPercent;
+    }
+
+    public void setUniversalMaxSizeAmplificationPercent(int universalMaxSizeAmplificationPercent) {
+        this.universalMaxSizeAmplificationPercent = universalMaxSizeAmplificationPercent;
+    }
+
+    public int getMaxSubcompactions() {
+        return maxSubcompactions;
+    }
+
+    /*
+        * Threads one compaction may split its key range over. 1 keeps every compaction on the single compaction thread.
+     */
+    public void setMaxSubcompactions(int maxSubcompactions) {
+        if (maxSubcompactions < 1)
+            throw new IllegalArgumentException("maxSubcompactions must be positive");
+        this.maxSubcompactions = maxSubcompactions;
+    }
+
+    public int getLevel0SlowdownWritesTrigger() {
+        return level0SlowdownWritesTrigger;
+    }
+
+    /*
+        * Level 0 table count at which writes get paced to delayedWriteRate, see WriteController.
+     */
+    public void setLevel0SlowdownWritesTrigger(int level0SlowdownWritesTrigger) {
+        this.level0SlowdownWritesTrigger = level0SlowdownWritesTrigger;
+    }
+
+    public int getLevel0StopWritesTrigger() {
+        return level0StopWritesTrigger;
+    }
+
+    /*
+        * Level 0 table count at which writes block until compaction catches up.
+     */
+    public void setLevel0StopWritesTrigger(int level0StopWritesTrigger) {
+        this.level0StopWritesTrigger = level0StopWritesTrigger;
+    }
+
+    public long getSoftPendingCompactionBytesLimit() {
+        return softPendingCompactionBytesLimit;
+    }
+
+    public void setSoftPendingCompactionBytesLimit(long softPendingCompactionBytesLimit) {
+        this.softPendingCompactionBytesLimit = softPendingCompactionBytesLimit;
+    }
+
+    public long getHardPendingCompactionBytesLimit() {
+        return hardPendingCompactionBytesLimit;
+    }
+
+    public void setHardPendingCompactionBytesLimit(long hardPendingCompactionBytesLimit) {
+        this.hardPendingCompactionBytesLimit = hardPendingCompactionBytesLimit;
+    }
+
+    public long getDelayedWriteRate() {
+        return delayedWriteRate;
+    }
+
+    /*
+        * Bytes/sec all writers together may write while writes are delayed.
+     */
+    public void setDelayedWriteRate(long delayedWriteRate) {
+        if (delayedWriteRate <= 0)
+            throw new IllegalArgumentException("delayedWriteRate must be positive");
+        this.delayedWriteRate = delayedWriteRate;
+    }
+
+    public double getTombstoneCompactionRatio() {
+        return tombstoneCompactionRatio;
+    }
+
+    /*
+        * Share of tombstones in a table above which it gets compacted on its own once nothing else needs compacting, so deletes
+          actually free space. Must be in (0, 1].
+     */
+    public void setTombstoneCompactionRatio(double tombstoneCompactionRatio) {
+        if (!(tombstoneCompactionRatio > 0 && tombstoneCompactionRatio <= 1))
+            throw new IllegalArgumentException("tombstoneCompactionRatio must be in (0, 1]");
+        this.tombstoneCompactionRatio = tombstoneCompactionRatio;
+    }
+
+    public CompactionFilter getCompactionFilter() {
+        return compactionFilter;
+    }
+
+    /*
+        * Called for every value compaction writes, see CompactionFilter. Defaults to dropping expired TTL data, null disables filtering.
+     */
+    public void setCompactionFilter(CompactionFilter compactionFilter) {
+        this.compactionFilter = compactionFilter;
+    }
+
+    public int getMaxImmutableMemTables() {
+        return maxImmutableMemTables;
+    }
+
+    /*
+        * Full memtables allowed to wait for (or be in) a flush at once. Writes stop once that many are queued, so a burst can't pile
+          up memtables faster than they are written out.
+     */
+    public void setMaxImmutableMemTables(int maxImmutableMemTables) {
+        if (maxImmutableMemTables < 1)
+            throw new IllegalArgumentException("maxImmutableMemTables must be positive");
+        this.maxImmutableMemTables = maxImmutableMemTables;
+    }
+
+    public int getMaxBackgroundFlushes() {
+        return maxBackgroundFlushes;
+    }
+
+    /*
+        * Threads writing memtables out to SSTables.
+     */
+    public void setMaxBackgroundFlushes(int maxBackgroundFlushes) {
+        if (maxBackgroundFlushes < 1)
+            throw new IllegalArgumentException("maxBackgroundFlushes must be positive");
+        this.maxBackgroundFlushes = maxBackgroundFlushes;
+    }
+
+    public long getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    /*
+        * Approximate bytes (keys, values and per entry overhead) a memtable takes before it is sealed and flushed.
+     */
+    public void setWriteBufferSize(long writeBufferSize) {
+        if (writeBufferSize <= 0)
+            throw new IllegalArgumentException("writeBufferSize must be positive");
+        this.writeBufferSize = writeBufferSize;
+    }
+
+    public WriteBufferManager getWriteBufferManager() {
+        return writeBufferManager;
+    }
+
+    /*
+        * Memory budget shared with every other store given the same manager, see WriteBufferManager. null (default) means each
+          memtable is only bounded by writeBufferSize.
+     */
+    public void setWriteBufferManager(WriteBufferManager writeBufferManager) {
+        this.writeBufferManager = writeBufferManager;
+    }
+
+    public MemTableRep.Type getMemTableRep() {
+        return memTableRep;
+    }
+
+    /*
+        * What memtables keep their entries in. ARENA keeps them off heap, worth it once write buffers get big enough for GC to hurt.
+     */
+    public void setMemTableRep(MemTableRep.Type memTableRep) {
+        this.memTableRep = memTableRep;
+    }
+}
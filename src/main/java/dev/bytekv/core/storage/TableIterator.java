@@ -0,0 +1,57 @@
+package dev.bytekv.core.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/*
+    * Cursor over the entries of a table (or of several, see MergingIterator) in key order. Nothing is decoded or copied: the current
+      entry is exposed as positions inside buffer(), which the iterator reuses, so everything returned is only valid until the next
+      call to next(). Whoever needs a key for longer has to copy it.
+
+    * Usage: while (it.next()) { ... it.buffer(), it.keyOffset() ... }
+ */
+
+public interface TableIterator extends Closeable {
+
+    /*
+        * Moves to the next entry, false once there is none.
+     */
+    boolean next() throws IOException;
+
+    // buffer holding key and value of current entry, read it with absolute gets only.
+    ByteBuffer buffer();
+
+    int keyOffset();
+
+    int keyLength();
+
+    int valueOffset();
+
+    int valueLength();
+
+    boolean isTombstone();
+
+    // epoch millis after which the value is gone, 0 if it never expires. Not part of valueOffset/valueLength.
+    long expiresAt();
+
+    @Override
+    void close();
+
+    /*
+        * Unsigned byte order of two keys living in (possibly different) buffers, same order SSTable.compareKeys uses.
+     */
+    static int compareKeys(ByteBuffer a, int aOff, int aLen, ByteBuffer b, int bOff, int bLen) {
+        if (a.hasArray() && b.hasArray())
+            return java.util.Arrays.compareUnsigned(a.array(), a.arrayOffset() + aOff, a.arrayOffset() + aOff + aLen,
+                    b.array(), b.arrayOffset() + bOff, b.arrayOffset() + bOff + bLen);
+
+        int n = Math.min(aLen, bLen);
+        for (int i = 0; i < n; i++) {
+            int cmp = Byte.compareUnsigned(a.get(aOff + i), b.get(bOff + i));
+            if (cmp != 0)
+                return cmp;
+        }
+        return aLen - bLen;
+    }
+}
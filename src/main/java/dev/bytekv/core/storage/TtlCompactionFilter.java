@@ -0,0 +1,24 @@
+package dev.bytekv.core.storage;
+
+import java.io.ByteArrayOutputStream;
+
+/*
+    * Removes values whose TTL has passed (expiry is stored with the value, see SSTableWriter.put(key, value, expiresAt)). Reads
+      already treat those as deleted, this is what actually gives their space back. Values without a TTL are never touched.
+ */
+
+public class TtlCompactionFilter implements CompactionFilter {
+
+    @Override
+    public Decision filter(int level, TableIterator entry, ByteArrayOutputStream newValue) {
+        long expiresAt = entry.expiresAt();
+        if (expiresAt != 0 && expiresAt <= System.currentTimeMillis())
+            return Decision.REMOVE;
+        return Decision.KEEP;
+    }
+
+    @Override
+    public String name() {
+        return "ttl";
+    }
+}
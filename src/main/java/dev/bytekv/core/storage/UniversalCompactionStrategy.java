@@ -0,0 +1,148 @@
+package dev.bytekv.core.storage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+    * Universal compaction. The store is seen as a list of sorted runs ordered newest to oldest: every level 0 table is a run, and every
+      non empty deeper level is one run. Only neighbouring runs are ever merged, so data order between runs never changes.
+
+    * Checked in this order:
+    - space amplification: when all runs but the oldest add up to more than universalMaxSizeAmplificationPercent of the oldest one,
+      everything is merged into one run. This is also what gets rid of overwritten, deleted and (with a TTL filter) expired data.
+    - size ratio: starting from the newest run, keep adding the next older run while it is not bigger than what was collected so
+      far (plus universalSizeRatio percent). At least compactionMinMergeWidth runs get merged.
+    - run count: above level0CompactionTrigger runs, the newest ones are merged just to bound lookups.
+    - tombstones: a table that is mostly deletes and has nothing older under it is rewritten on its own to drop them.
+
+    * Output goes to the deepest level among the inputs (the last level for a full merge), split at targetFileSize when that is a
+      deeper level, one table in level 0.
+
+    * Tradeoffs:
+    - Least rewriting of the three strategies, but a full merge needs free space as big as the whole store.
+ */
+
+public class UniversalCompactionStrategy implements CompactionStrategy {
+
+    private final StorageOptions options;
+
+    public UniversalCompactionStrategy(StorageOptions options) {
+        this.options = options;
+    }
+
+    @Override
+    public Type type() {
+        return Type.UNIVERSAL;
+    }
+
+    @Override
+    public Compaction pick(Version v, long oldestPendingFlush) {
+        Compaction c = pickRuns(v, oldestPendingFlush);
+        if (c == null)
+            c = CompactionStrategy.tombstoneCompaction(v, options, oldestPendingFlush);
+        return c;
+    }
+
+    // tombstone rewrites are optional work, they're not counted as pending.
+    @Override
+    public long pendingCompactionBytes(Version v) {
+        Compaction c = pickRuns(v, Long.MAX_VALUE);
+        return c == null ? 0 : c.inputBytes();
+    }
+
+    private Compaction pickRuns(Version v, long oldestPendingFlush) {
+        List<Run> runs = sortedRuns(v, oldestPendingFlush);
+        if (runs.size() < options.getLevel0CompactionTrigger())
+            return null;
+
+        Compaction c = pickSizeAmplification(runs);
+        if (c == null)
+            c = pickSizeRatio(runs);
+        if (c == null) {
+            int extra = runs.size() - options.getLevel0CompactionTrigger() + 1;
+            if (extra >= 2)
+                c = merge(runs, 0, extra, 0);
+        }
+        return c;
+    }
+
+    private Compaction pickSizeAmplification(List<Run> runs) {
+        long newer = 0;
+        for (int i = 0; i < runs.size() - 1; i++)
+            newer += runs.get(i).bytes;
+        long oldest = runs.get(runs.size() - 1).bytes;
+
+        if (newer * 100 < oldest * options.getUniversalMaxSizeAmplificationPercent())
+            return null;
+        // everything is merged, so the result can sit in the last level where it's split by key range and binary searched.
+        return merge(runs, 0, runs.size(), options.getNumLevels() - 1);
+    }
+
+    private Compaction pickSizeRatio(List<Run> runs) {
+        for (int start = 0; start < runs.size(); start++) {
+            long collected = runs.get(start).bytes;
+            int end = start + 1;
+            while (end < runs.size() && end - start < options.getCompactionMaxMergeWidth()
+                    && runs.get(end).bytes * 100 <= collected * (100 + options.getUniversalSizeRatio())) {
+                collected += runs.get(end).bytes;
+                end++;
+            }
+            if (end - start >= options.getCompactionMinMergeWidth())
+                return merge(runs, start, end, 0);
+        }
+        return null;
+    }
+
+    // runs [start, end) merged, passed oldest first. Output never goes above the deepest input.
+    private Compaction merge(List<Run> runs, int start, int end, int outputLevel) {
+        List<SSTable> inputs = new ArrayList<>();
+        for (int i = end - 1; i >= start; i--) {
+            inputs.addAll(runs.get(i).tables);
+            outputLevel = Math.max(outputLevel, runs.get(i).level);
+        }
+        long maxFileSize = outputLevel == 0 ? Long.MAX_VALUE : options.getTargetFileSize();
+        return new Compaction(runs.get(start).level, outputLevel, inputs, maxFileSize);
+    }
+
+    /*
+        * Newest run first. Level 0 tables newer than a pending flush are left out, they are the newest runs anyway.
+     */
+    private static List<Run> sortedRuns(Version v, long oldestPendingFlush) {
+        List<Run> runs = new ArrayList<>();
+
+        List<SSTable> level0 = new ArrayList<>(v.tables(0));
+        level0.removeIf(sst -> sst.getMaxSequence() >= oldestPendingFlush);
+        level0.sort(Comparator.comparingLong(SSTable::getMaxSequence).reversed());
+        for (SSTable sst : level0) {
+            List<SSTable> single = new ArrayList<>();
+            single.add(sst);
+            runs.add(new Run(0, single));
+        }
+
+        for (int level = 1; level < v.levelCount(); level++) {
+            List<SSTable> tables = new ArrayList<>(v.tables(level));
+            if (tables.isEmpty())
+                continue;
+            // an overlapping level still has to be merged oldest first inside.
+            tables.sort(Comparator.comparingLong(SSTable::getMaxSequence));
+            runs.add(new Run(level, tables));
+        }
+        return runs;
+    }
+
+    private static final class Run {
+        final int level;
+        final List<SSTable> tables;
+        final long bytes;
+
+        Run(int level, List<SSTable> tables) {
+            this.level = level;
+            this.tables = tables;
+            long b = 0;
+            for (SSTable sst : tables)
+                b += sst.getFileSize();
+            this.bytes = b;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package dev.bytekv.core.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+    * A Version is an immutable snapshot of which SSTables are live and in which level. SSTManager never edits a Version, every flush and
+      compaction builds a new one from the current one and swaps it in with a single volatile write. Readers just grab the current Version,
+      so they never take a lock and never see a half applied compaction (merged table missing while inputs are already gone, or both present).
+
+    * Ordering inside a Version is what makes reads correct: level 0 holds freshly flushed tables that can overlap each other, so they are kept
+      newest first (by sequence) and the first table that knows the key wins. Deeper levels hold older data than shallower ones. A deeper level
+      whose tables don't overlap is kept sorted by key range and binary searched, so it costs one table at most; an overlapping one is kept
+      newest first like level 0.
+
+    * Versions are reference counted and every Version holds a reference on each of its tables. A table is closed (and unmapped) only
+      when no Version that contains it is still in use, so a reader holding an old Version can keep reading tables that compaction
+      has already replaced.
+ */
+
+public final class Version {
+
+    private final Level[] levels;
+    private final AtomicInteger refs = new AtomicInteger(1);
+
+    private Version(Level[] levels) {
+        this.levels = levels;
+        for (Level level : levels) {
+            for (SSTable t : level.tables) {
+                if (!t.acquire())
+                    throw new IllegalStateException(t.getSSTName() + " is already released");
+            }
+        }
+    }
+
+    public static Version empty() {
+        return new Version(new Level[0]);
+    }
+
+    /*
+        * Takes a reference, fails if the Version was already dropped by everyone. See SSTManager.acquireVersion.
+     */
+    boolean tryRef() {
+        while (true) {
+            int n = refs.get();
+            if (n <= 0)
+                return false;
+            if (refs.compareAndSet(n, n + 1))
+                return true;
+        }
+    }
+
+    public void release() {
+        if (refs.decrementAndGet() == 0) {
+            for (Level level : levels) {
+                for (SSTable t : level.tables)
+                    t.release();
+            }
+        }
+    }
+
+    public int levelCount() {
+        return levels.length;
+    }
+
+    public List<SSTable> tables(int level) {
+        if (level >= levels.length)
+            return Collections.emptyList();
+        return Collections.unmodifiableList(Arrays.asList(levels[level].tables));
+    }
+
+    public long levelBytes(int level) {
+        if (level >= levels.length)
+            return 0;
+        long bytes = 0;
+        for (SSTable t : levels[level].tables)
+            bytes += t.getFileSize();
+        return bytes;
+    }
+
+    public boolean isDisjoint(int level) {
+        return level < levels.length && levels[level].disjoint;
+    }
+
+    public List<SSTable> allTables() {
+        List<SSTable> all = new ArrayList<>();
+        for (Level level : levels)
+            all.addAll(Arrays.asList(level.tables));
+        return all;
+    }
+
+    /*
+        * Tables other than inputs that may hold a version of some key in [lo, hi] written no later than maxSequence, i.e. anything a
+          tombstone from inputs could still be hiding. Empty means a compaction of inputs is the bottommost one for that range.
+     */
+    public List<SSTable> olderOverlapping(Collection<SSTable> inputs, byte[] lo, byte[] hi, long maxSequence) {
+        List<SSTable> older = new ArrayList<>();
+        for (Level level : levels) {
+            for (SSTable t : level.tables) {
+                if (t.getMinSequence() <= maxSequence && !inputs.contains(t) && (lo == null || t.overlapsRange(lo, hi)))
+                    older.add(t);
+            }
+        }
+        return older;
+    }
+
+    /*
+        * Tables that might hold key, in the order they have to be checked (newest data first).
+     */
+    public List<SSTable> tablesForKey(LookupKey key) {
+        List<SSTable> candidates = new ArrayList<>();
+        for (Level level : levels) {
+            if (level.disjoint) {
+                SSTable t = findTable(level.tables, key);
+                if (t != null)
+                    candidates.add(t);
+                continue;
+            }
+            for (SSTable t : level.tables) {
+                if (t.mayContainKey(key))
+                    candidates.add(t);
+            }
+        }
+        return candidates;
+    }
+
+    /*
+        * Binary search over tables sorted by minKey with disjoint ranges: last table with minKey <= key, if key is within its maxKey.
+     */
+    static SSTable findTable(SSTable[] sorted, LookupKey key) {
+        byte[] k = key.bytes();
+        int lo = 0, hi = sorted.length - 1, found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (SSTable.compareKeys(sorted[mid].minKeyBytes(), k) <= 0) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (found < 0 || SSTable.compareKeys(k, sorted[found].maxKeyBytes()) > 0)
+            return null;
+        return sorted[found];
+    }
+
+    public Builder edit() {
+        return new Builder(this);
+    }
+
+    /*
+        * Collects tables added to / removed from a base Version and produces the next one.
+     */
+    public static final class Builder {
+        private final List<List<SSTable>> levels = new ArrayList<>();
+
+        private Builder(Version base) {
+            for (Level level : base.levels)
+                levels.add(new ArrayList<>(Arrays.asList(level.tables)));
+        }
+
+        public Builder add(int level, SSTable table) {
+            while (levels.size() <= level)
+                levels.add(new ArrayList<>());
+            levels.get(level).add(table);
+            return this;
+        }
+
+        /*
+            * Removes table from whatever level it is in, so remove followed by add moves a table down without rewriting it.
+         */
+        public Builder remove(SSTable table) {
+            for (List<SSTable> level : levels)
+                level.remove(table);
+            return this;
+        }
+
+        public Version build() {
+            int count = levels.size();
+            while (count > 0 && levels.get(count - 1).isEmpty())
+                count--;
+
+            Level[] result = new Level[count];
+            for (int i = 0; i < count; i++)
+                result[i] = Level.of(i, levels.get(i));
+            return new Version(result);
+        }
+    }
+
+    private static final class Level {
+        final SSTable[] tables;
+        final boolean disjoint;
+
+        private Level(SSTable[] tables, boolean disjoint) {
+            this.tables = tables;
+            this.disjoint = disjoint;
+        }
+
+        static Level of(int level, List<SSTable> tables) {
+            SSTable[] sorted = tables.toArray(new SSTable[0]);
+
+            if (level > 0 && sorted.length > 0 && Arrays.stream(sorted).allMatch(SSTable::hasKeyRange)) {
+                Arrays.sort(sorted, SSTable::compareMinKeys);
+                boolean disjoint = true;
+                for (int i = 1; i < sorted.length && disjoint; i++)
+                    disjoint = SSTable.compareKeys(sorted[i - 1].maxKeyBytes(), sorted[i].minKeyBytes()) < 0;
+                if (disjoint)
+                    return new Level(sorted, true);
+            }
+
+            // newest data first, a bigger max sequence means the table saw newer writes.
+            Arrays.sort(sorted, (a, b) -> Long.compare(b.getMaxSequence(), a.getMaxSequence()));
+            return new Level(sorted, false);
+        }
+    }
+}
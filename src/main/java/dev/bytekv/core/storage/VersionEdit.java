@@ -0,0 +1,146 @@
+package dev.bytekv.core.storage;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    * One change to the set of live tables: tables added (with the level they go to and their metadata) and tables removed.
+      Flush produces "add one table to level 0", compaction produces "add merged tables, remove inputs". Edits are appended to the
+      MANIFEST and replaying them in order rebuilds the last Version, level structure included.
+ */
+
+public class VersionEdit {
+
+    private final List<TableMeta> added = new ArrayList<>();
+    private final List<Integer> removed = new ArrayList<>();
+    private int lastTableId = -1;
+
+    public VersionEdit addTable(int level, SSTable table) {
+        added.add(TableMeta.of(level, table));
+        return this;
+    }
+
+    public VersionEdit addTable(TableMeta meta) {
+        added.add(meta);
+        return this;
+    }
+
+    public VersionEdit removeTable(SSTable table) {
+        removed.add(table.getId());
+        return this;
+    }
+
+    public VersionEdit setLastTableId(int lastTableId) {
+        this.lastTableId = lastTableId;
+        return this;
+    }
+
+    public List<TableMeta> getAdded() {
+        return added;
+    }
+
+    public List<Integer> getRemoved() {
+        return removed;
+    }
+
+    public int getLastTableId() {
+        return lastTableId;
+    }
+
+    /*
+        * lastTableId(int) | addedCount(int) | added tables... | removedCount(int) | removed ids(int...)
+     */
+    byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(lastTableId);
+        out.writeInt(added.size());
+        for (TableMeta meta : added)
+            meta.writeTo(out);
+        out.writeInt(removed.size());
+        for (int id : removed)
+            out.writeInt(id);
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static VersionEdit decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        VersionEdit edit = new VersionEdit();
+
+        edit.lastTableId = in.readInt();
+        int addedCount = in.readInt();
+        for (int i = 0; i < addedCount; i++)
+            edit.added.add(TableMeta.readFrom(in));
+        int removedCount = in.readInt();
+        for (int i = 0; i < removedCount; i++)
+            edit.removed.add(in.readInt());
+
+        return edit;
+    }
+
+    /*
+        * What the MANIFEST knows about a table without opening it.
+     */
+    public static final class TableMeta {
+        public final int level;
+        public final int id;
+        public final long fileSize;
+        public final long entryCount;
+        public final byte[] minKey;
+        public final byte[] maxKey;
+        public final long minSequence;
+        public final long maxSequence;
+
+        TableMeta(int level, int id, long fileSize, long entryCount, byte[] minKey, byte[] maxKey, long minSequence, long maxSequence) {
+            this.level = level;
+            this.id = id;
+            this.fileSize = fileSize;
+            this.entryCount = entryCount;
+            this.minKey = minKey;
+            this.maxKey = maxKey;
+            this.minSequence = minSequence;
+            this.maxSequence = maxSequence;
+        }
+
+        static TableMeta of(int level, SSTable t) {
+            byte[] min = t.minKeyBytes() == null ? new byte[0] : t.minKeyBytes();
+            byte[] max = t.maxKeyBytes() == null ? new byte[0] : t.maxKeyBytes();
+            return new TableMeta(level, t.getId(), t.getFileSize(), t.getEntryCount(), min, max, t.getMinSequence(), t.getMaxSequence());
+        }
+
+        TableMeta atLevel(int newLevel) {
+            return new TableMeta(newLevel, id, fileSize, entryCount, minKey, maxKey, minSequence, maxSequence);
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(level);
+            out.writeInt(id);
+            out.writeLong(fileSize);
+            out.writeLong(entryCount);
+            out.writeInt(minKey.length);
+            out.write(minKey);
+            out.writeInt(maxKey.length);
+            out.write(maxKey);
+            out.writeLong(minSequence);
+            out.writeLong(maxSequence);
+        }
+
+        static TableMeta readFrom(DataInputStream in) throws IOException {
+            int level = in.readInt();
+            int id = in.readInt();
+            long fileSize = in.readLong();
+            long entryCount = in.readLong();
+            byte[] min = new byte[in.readInt()];
+            in.readFully(min);
+            byte[] max = new byte[in.readInt()];
+            in.readFully(max);
+            long minSequence = in.readLong();
+            long maxSequence = in.readLong();
+            return new TableMeta(level, id, fileSize, entryCount, min, max, minSequence, maxSequence);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package dev.bytekv.core.storage;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+    * Memory budget shared by every memtable it is handed to (through StorageOptions.setWriteBufferManager), so several stores in one
+      process can't together hold more than bufferSize bytes of unflushed writes even though each one stays under its own writeBufferSize.
+
+    * Memtables report what they take: active (still written to) and total (active plus sealed ones not flushed yet). Once the budget
+      is used up, the writer that noticed seals the memtable holding the most active bytes, wherever it lives, since flushing that one
+      frees the most memory per SSTable written.
+
+    * Flushing is asked for when active memory passes 7/8 of the budget, or when the budget is full and at least half of it is still
+      active. Memory already being flushed is on its way out, sealing more small memtables because of it would only make tiny tables.
+
+    * Tradeoffs:
+    - Sizes are estimates (chars plus a fixed per entry overhead), the real heap use can be off either way.
+    - The budget is soft: nothing blocks on it, writes only stop through maxImmutableMemTables once flushes fall behind.
+ */
+
+public class WriteBufferManager {
+
+    private final long bufferSize;
+    private final AtomicLong activeBytes = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final Set<MemTable> memTables = ConcurrentHashMap.newKeySet();
+
+    public WriteBufferManager(long bufferSize) {
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException("bufferSize must be positive");
+        this.bufferSize = bufferSize;
+    }
+
+    void register(MemTable memTable) {
+        memTables.add(memTable);
+    }
+
+    void unregister(MemTable memTable) {
+        memTables.remove(memTable);
+    }
+
+    // bytes were written to (or, negative, released from) an active memtable.
+    void reserve(long bytes) {
+        activeBytes.addAndGet(bytes);
+        totalBytes.addAndGet(bytes);
+    }
+
+    // a memtable holding bytes was sealed, they stay counted until freed.
+    void sealed(long bytes) {
+        activeBytes.addAndGet(-bytes);
+    }
+
+    // a sealed memtable holding bytes is flushed and out of the read path.
+    void free(long bytes) {
+        totalBytes.addAndGet(-bytes);
+    }
+
+    boolean shouldFlush() {
+        long active = activeBytes.get();
+        if (active > bufferSize - bufferSize / 8)
+            return true;
+        return totalBytes.get() >= bufferSize && active >= bufferSize / 2;
+    }
+
+    /*
+        * Seals the registered memtable with the most active bytes. May wait like any write when that one already has
+          maxImmutableMemTables sealed memtables queued. Writers that all saw the budget used up get here one at a time, only the
+          first one finds it still used up.
+     */
+    synchronized void flushLargest() throws IOException {
+        if (!shouldFlush())
+            return;
+
+        MemTable largest = null;
+        long largestBytes = 0;
+        for (MemTable memTable : memTables) {
+            long bytes = memTable.getApproximateMemoryUsage();
+            if (bytes > largestBytes) {
+                largest = memTable;
+                largestBytes = bytes;
+            }
+        }
+        if (largest != null) {
+            System.out.println("Write buffer budget of " + bufferSize + " bytes used up (" + totalBytes.get()
+                    + " bytes), flushing a memtable of " + largestBytes + " bytes");
+            largest.scheduleFlush();
+        }
+    }
+
+    public long getBufferSize() {
+        return bufferSize;
+    }
+
+    public long getActiveBytes() {
+        return activeBytes.get();
+    }
+
+    public long getMemoryUsage() {
+        return totalBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBufferManager{bufferSize=" + bufferSize + ", active=" + getActiveBytes() + ", total=" + getMemoryUsage()
+                + ", memTables=" + memTables.size() + "}";
+    }
+}
@@ -0,0 +1,163 @@
+package dev.bytekv.core.storage;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+    * Backpressure between writers and compaction. Nothing else stops memtables from being flushed faster than compaction can drain
+      level 0, and every extra level 0 table is one more table each read has to check. SSTManager reports level 0 table count and
+      pending compaction bytes every time it installs a Version, and writers call throttle() before writing.
+
+    * NORMAL  : writes go through untouched.
+    * DELAYED : level 0 reached level0SlowdownWritesTrigger tables or pending bytes passed softPendingCompactionBytesLimit. Writes are
+                paced to delayedWriteRate bytes/sec across all writers, so compaction gets a chance to catch up while writes keep going.
+    * STOPPED : level 0 reached level0StopWritesTrigger tables or pending bytes passed hardPendingCompactionBytesLimit, or
+                maxImmutableMemTables memtables are waiting to be flushed (reported by MemTable). Writes block until a compaction or
+                flush brings the store back under the limits.
+
+    * Tradeoffs:
+    - Write latency spikes on purpose while stalled, in exchange reads stay bounded instead of degrading for hours after a bulk load.
+    - If compaction keeps failing, a stopped store stays stopped.
+ */
+
+public class WriteController {
+
+    public enum State { NORMAL, DELAYED, STOPPED }
+
+    private final StorageOptions options;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    private volatile State state = State.NORMAL;
+    private long nextWriteNanos = 0;
+
+    // last reported numbers, guarded by lock.
+    private int level0Tables = 0;
+    private long pendingCompactionBytes = 0;
+    private int immutableMemTables = 0;
+
+    private final AtomicLong delayedWrites = new AtomicLong();
+    private final AtomicLong delayNanos = new AtomicLong();
+    private final AtomicLong stoppedWrites = new AtomicLong();
+    private final AtomicLong stopNanos = new AtomicLong();
+
+    public WriteController(StorageOptions options) {
+        this.options = options;
+    }
+
+    /*
+        * Recomputes the state. Called by SSTManager after every flush and compaction.
+     */
+    void update(int level0Tables, long pendingCompactionBytes) {
+        lock.lock();
+        try {
+            this.level0Tables = level0Tables;
+            this.pendingCompactionBytes = pendingCompactionBytes;
+            recompute();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+        * Called by MemTable whenever a memtable is sealed or its flush is done.
+     */
+    void updateMemTables(int immutableMemTables) {
+        lock.lock();
+        try {
+            this.immutableMemTables = immutableMemTables;
+            recompute();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recompute() {
+        State next;
+        if (level0Tables >= options.getLevel0StopWritesTrigger() || pendingCompactionBytes >= options.getHardPendingCompactionBytesLimit()
+                || immutableMemTables >= options.getMaxImmutableMemTables())
+            next = State.STOPPED;
+        else if (level0Tables >= options.getLevel0SlowdownWritesTrigger() || pendingCompactionBytes >= options.getSoftPendingCompactionBytesLimit())
+            next = State.DELAYED;
+        else
+            next = State.NORMAL;
+
+        if (next == state)
+            return;
+
+        System.out.println("Writes " + state + " -> " + next + " (level 0 tables: " + level0Tables + ", pending compaction bytes: "
+                + pendingCompactionBytes + ", immutable memtables: " + immutableMemTables + ")");
+        state = next;
+        stateChanged.signalAll();
+    }
+
+    /*
+        * Called before a write of about bytes. Returns right away in NORMAL state.
+     */
+    public void throttle(long bytes) throws InterruptedIOException {
+        if (state == State.NORMAL)
+            return;
+
+        long start = System.nanoTime();
+        boolean stopped = false;
+        lock.lock();
+        try {
+            while (state == State.STOPPED) {
+                stopped = true;
+                stateChanged.await(100, TimeUnit.MILLISECONDS);
+            }
+
+            if (state == State.DELAYED) {
+                // writers share one schedule, each write pushes the next allowed time by its share of delayedWriteRate.
+                long now = System.nanoTime();
+                nextWriteNanos = Math.max(now, nextWriteNanos) + bytes * 1_000_000_000L / options.getDelayedWriteRate();
+                long wait = nextWriteNanos - now;
+                while (wait > 0 && state == State.DELAYED) {
+                    wait = stateChanged.awaitNanos(wait);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while writes were stalled");
+        } finally {
+            lock.unlock();
+            long waited = System.nanoTime() - start;
+            if (stopped) {
+                stoppedWrites.incrementAndGet();
+                stopNanos.addAndGet(waited);
+            } else {
+                delayedWrites.incrementAndGet();
+                delayNanos.addAndGet(waited);
+            }
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getDelayedWrites() {
+        return delayedWrites.get();
+    }
+
+    public long getDelayMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(delayNanos.get());
+    }
+
+    public long getStoppedWrites() {
+        return stoppedWrites.get();
+    }
+
+    public long getStopMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(stopNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return "WriteController{state=" + state + ", delayedWrites=" + getDelayedWrites() + ", delayMs=" + getDelayMillis()
+                + ", stoppedWrites=" + getStoppedWrites() + ", stopMs=" + getStopMillis() + "}";
+    }
+}
@@ -14,6 +14,8 @@ public class LogEntry implements Serializable {
     private final Operation operation;
     private final String key;
     private final String value;
+    private final long expiresAt;
+    private final long sequence;
     private final long timeStamp;
     private long checkSum;
 
@@ -27,9 +29,18 @@ public class LogEntry implements Serializable {
     public static final ThreadLocal<CRC32> crcThreadLocal = ThreadLocal.withInitial(CRC32::new);
 
     public LogEntry(Operation operation, String key, String value) {
+        this(operation, key, value, 0, 0);
+    }
+
+    /*
+        * expiresAt (epoch millis, 0 for none) and the memtable's sequence go into the record as fields of their own, next to the value.
+     */
+    public LogEntry(Operation operation, String key, String value, long expiresAt, long sequence) {
         this.operation = operation;
         this.key = key;
         this.value = value;
+        this.expiresAt = expiresAt;
+        this.sequence = sequence;
         this.timeStamp = Instant.now().toEpochMilli();
     }
 
@@ -51,6 +62,8 @@ public class LogEntry implements Serializable {
             dos.writeLong(delta); 
             dos.writeUTF(this.key);
             dos.writeUTF(this.value != null ? this.value : "");
+            dos.writeLong(this.expiresAt);
+            dos.writeLong(this.sequence);
             dos.flush();
 
             recordBytes = baos.toByteArray();
@@ -73,6 +86,8 @@ public class LogEntry implements Serializable {
                 .setOp(protoOp)
                 .setKey(this.key)
                 .setValue(this.value != null ? this.value : "")
+                .setExpiresAt(this.expiresAt)
+                .setSequence(this.sequence)
                 //.setChecksum(checkSum)
                 .build();
     }
@@ -2,13 +2,18 @@ package dev.bytekv.log;
 
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.file.Paths;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.zip.CRC32;
 
 import dev.bytekv.proto.LogEntryOuterClass;
 import dev.bytekv.core.KeyValue;
+import dev.bytekv.core.WALWriter;
 import dev.bytekv.core.storage.MemTable;
 
 public class LogRestorer{
@@ -44,50 +49,72 @@ public class LogRestorer{
         }
 } */
 
+    /*
+        * Puts back whatever the WAL segments on disk hold (see WALWriter), oldest segment first. Must run before the store takes
+          writes. Within a segment, records are applied in the order of the sequence they got from the memtable, not in file order:
+          two writers of one key may log in either order, the memtable kept the one with the bigger sequence.
+
+        * A record that can't be read ends its segment, that's a tail torn by a crash. Once everything is flushed the replayed segments
+          are deleted, until then a crash just replays them again.
+     */
     public void replayLogs() {
-        
+
         System.out.println("Triggered replaying log :P");
-        String logFilepath = Paths.get(logPath, "master.log").toString();
+        List<File> segments = WALWriter.segmentFiles(new File(logPath));
+        int replayed = 0;
+
+        for (File segment : segments) {
+            List<LogEntryOuterClass.LogEntry> entries = new ArrayList<>();
+            try (FileInputStream fis = new FileInputStream(segment)) {
+                while (true) {
+                    /* im currently using protobuf to store log in binary format for faster writes and retrivals */
+                    LogEntryOuterClass.LogEntry entry = LogEntryOuterClass.LogEntry.parseDelimitedFrom(fis);
+                    if (entry == null)
+                        break;
+                    entries.add(entry);
+                }
+            } catch (IOException e) {
+                System.out.println("WAL segment " + segment.getName() + " ends in a torn record, replaying the " + entries.size() + " before it: " + e.getMessage());
+            }
+
+            // stable, the legacy master.log has no sequences (all 0) and keeps its file order.
+            entries.sort(Comparator.comparingLong(LogEntryOuterClass.LogEntry::getSequence));
+
+            try {
+                for (LogEntryOuterClass.LogEntry entry : entries) {
+                    switch (entry.getOp()) {
+                        case PUT:
+                            memTable.replay(entry.getKey(), entry.getValue(), entry.getExpiresAt());
+                            break;
+                        case DELETE:
+                            memTable.replay(entry.getKey(), null, 0);
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error replaying WAL segment " + segment.getName(), e);
+            }
+            replayed += entries.size();
+        }
 
-        try (FileInputStream fis = new FileInputStream(logFilepath)) {
-            while (true) {
+        if (segments.isEmpty())
+            return;
+        System.out.println("Replayed " + replayed + " WAL entries from " + segments.size() + " segments");
 
-            /* im currently using protobuf to store log in binary format for faster writes and retrivals */
-            LogEntryOuterClass.LogEntry entry = LogEntryOuterClass.LogEntry.parseDelimitedFrom(fis);
-            
-            if (entry == null)
+        try {
+            memTable.flush();
+        } catch (IOException e) {
+            // segments stay, they get replayed again next time.
+            throw new UncheckedIOException("Flushing replayed WAL failed", e);
+        }
+        // oldest first, and once one stays every newer one stays too, like WALWriter does.
+        for (File segment : segments) {
+            if (!segment.delete() && segment.exists()) {
+                System.out.println("Could not delete replayed WAL segment " + segment.getName() + ", keeping all newer ones");
                 break;
-
-            /*if (!verifyEntry(entry)) {
-                System.err.println("Corrupted WAL entry detected! Stopping replay.");
-                break; 
-            }*/
-
-            String key = entry.getKey();
-            String value = entry.getValue();
-            LogEntryOuterClass.LogEntry.Operation protoOp = entry.getOp();
-
-            String operation = "";
-            switch (protoOp) {
-                case PUT:
-                    operation = "PUT";
-                    break;
-                case DELETE:
-                    operation = "DELETE";
-                    break;
             }
-
-            System.out.println("Operation: " + operation + " key: " + key + " value: " + value);
-            
-            if(operation.equals("PUT"))
-                memTable.put(key , value);
-            
-            else if(operation.equals("DELETE"))
-                memTable.delete(key);
-                
         }
-    } catch (IOException e) {
-        System.out.println("Error replaying logs: " + e.getMessage());
-    }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,80 @@
+package dev.bytekv.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class LRUCacheTest {
+
+    @Test
+    void olderWriteDoesNotReplaceNewerOne() {
+        LRUCache cache = new LRUCache(100);
+
+        cache.put("k", "new", 5);
+        cache.put("k", "old", 3);
+        assertEquals("new", cache.get("k"));
+    }
+
+    @Test
+    void deleteLeavesMarkerThatBlocksOlderPut() {
+        LRUCache cache = new LRUCache(100);
+
+        cache.put("k", "v", 1);
+        cache.delete("k", 3);
+        assertNull(cache.get("k"));
+
+        cache.put("k", "stale", 2);
+        assertNull(cache.get("k"));
+
+        cache.put("k", "fresh", 4);
+        assertEquals("fresh", cache.get("k"));
+    }
+
+    @Test
+    void evictedSequenceBlocksStalePutOfUncachedKey() {
+        // one shard, so the order of evictions is plain LRU.
+        LRUCache cache = new LRUCache(2, 1);
+
+        cache.put("a", "a", 10);
+        cache.put("b", "b", 11);
+        cache.put("c", "c", 12);
+        assertNull(cache.get("a"));
+
+        // a write of "a" older than what got evicted may be older than the evicted value itself.
+        cache.put("a", "stale", 9);
+        assertNull(cache.get("a"));
+        cache.put("a", "fresh", 13);
+        assertEquals("fresh", cache.get("a"));
+    }
+
+    @Test
+    void getKeepsEntryRecentlyUsed() {
+        LRUCache cache = new LRUCache(2, 1);
+
+        cache.put("a", "a", 1);
+        cache.put("b", "b", 2);
+        cache.get("a");
+        cache.put("c", "c", 3);
+        assertEquals("a", cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    void holdsAtMostCapacityAcrossShards() {
+        LRUCache cache = new LRUCache(100, 16);
+
+        for (int i = 0; i < 10_000; i++)
+            cache.put("key" + i, "value" + i, i + 1);
+        assertTrue(cache.size() <= 100, "size " + cache.size());
+
+        LRUCache tiny = new LRUCache(3);
+        for (int i = 0; i < 100; i++)
+            tiny.put("key" + i, "value" + i);
+        assertTrue(tiny.size() <= 3, "size " + tiny.size());
+    }
+
+    @Test
+    void rejectsShardCountThatIsNotPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new LRUCache(100, 3));
+    }
+}
@@ -0,0 +1,188 @@
+package dev.bytekv.core.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ArenaMemTableRepTest {
+
+    @TempDir
+    Path dir;
+
+    // chars on both sides of the surrogates and a pair, where UTF-16 order and UTF-8 byte order disagree.
+    private static final String[] ODD_KEYS = {
+            "", "a", "ab", "b", "~", "\u00E9", "\u07FF", "\u0800", "\uD7FF", "\uE000", "\uFFFD", "\uFFFF",
+            "\uD83D\uDE00", "\uD800\uDC00", "a\uD83D\uDE00", "a\uFFFF"
+    };
+
+    private static String keyOf(TableIterator it) {
+        byte[] key = new byte[it.keyLength()];
+        ByteBuffer buffer = it.buffer();
+        for (int i = 0; i < key.length; i++)
+            key[i] = buffer.get(it.keyOffset() + i);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private static String valueOf(TableIterator it) {
+        byte[] value = new byte[it.valueLength()];
+        ByteBuffer buffer = it.buffer();
+        for (int i = 0; i < value.length; i++)
+            value[i] = buffer.get(it.valueOffset() + i);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> keys(MemTableRep rep) throws IOException {
+        List<String> keys = new ArrayList<>();
+        try (TableIterator it = rep.iterator()) {
+            while (it.next())
+                keys.add(keyOf(it));
+        }
+        return keys;
+    }
+
+    private static List<String> sortedByUtf8(List<String> keys) {
+        List<String> sorted = new ArrayList<>(keys);
+        sorted.sort((a, b) -> Arrays.compareUnsigned(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8)));
+        return sorted;
+    }
+
+    @Test
+    void iteratesInUtf8ByteOrder() throws IOException {
+        List<String> keys = new ArrayList<>(Arrays.asList(ODD_KEYS));
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++)
+            keys.add("key" + random.nextInt(1_000_000));
+        keys = new ArrayList<>(new LinkedHashSet<>(keys));
+        Collections.shuffle(keys, random);
+
+        MemTableRep arena = new ArenaMemTableRep(ArenaMemTableRep.chunkSizeFor(0));
+        MemTableRep skipList = new SkipListMemTableRep();
+        long sequence = 0;
+        for (String key : keys) {
+            sequence++;
+            arena.put(key, "v-" + key, 0, sequence);
+            skipList.put(key, "v-" + key, 0, sequence);
+        }
+
+        assertEquals(keys.size(), arena.size());
+        List<String> expected = sortedByUtf8(keys);
+        assertEquals(expected, keys(arena));
+        // both reps flush in the same order, the one SSTables are written in.
+        assertEquals(expected, keys(skipList));
+    }
+
+    @Test
+    void keepsWriteWithBiggestSequence() {
+        MemTableRep rep = new ArenaMemTableRep(ArenaMemTableRep.chunkSizeFor(0));
+
+        rep.put("k", "newer", 0, 5);
+        rep.put("k", "older", 0, 3);
+        assertEquals("newer", rep.get("k").value);
+
+        rep.put("k", null, 0, 6);
+        assertTrue(rep.get("k").isTombstone());
+
+        rep.put("k", "expiring", 1234, 7);
+        MemTableRep.Stored stored = rep.get("k");
+        assertEquals("expiring", stored.value);
+        assertEquals(1234, stored.expiresAt);
+        assertEquals(1, rep.size());
+        assertNull(rep.get("missing"));
+    }
+
+    @Test
+    void iteratorCarriesTombstonesAndExpiry() throws IOException {
+        MemTableRep rep = new ArenaMemTableRep(ArenaMemTableRep.chunkSizeFor(0));
+        rep.put("a", "plain", 0, 1);
+        rep.put("b", null, 0, 2);
+        rep.put("c", "ttl", 99, 3);
+
+        try (TableIterator it = rep.iterator()) {
+            assertTrue(it.next());
+            assertEquals("a", keyOf(it));
+            assertEquals("plain", valueOf(it));
+            assertFalse(it.isTombstone());
+            assertEquals(0, it.expiresAt());
+
+            assertTrue(it.next());
+            assertEquals("b", keyOf(it));
+            assertTrue(it.isTombstone());
+
+            assertTrue(it.next());
+            assertEquals("c", keyOf(it));
+            assertEquals("ttl", valueOf(it));
+            assertEquals(99, it.expiresAt());
+
+            assertFalse(it.next());
+        }
+    }
+
+    @Test
+    void concurrentInsertsAllLandInOrder() throws Exception {
+        MemTableRep rep = new ArenaMemTableRep(64 * 1024);
+        int threads = 4;
+        int perThread = 5000;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < perThread; i++)
+                    rep.put(String.format("k%06d", i * threads + thread), "value-" + thread + "-" + i, 0, i * threads + thread + 1);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        List<String> keys = keys(rep);
+        assertEquals(threads * perThread, rep.size());
+        assertEquals(threads * perThread, keys.size());
+        for (int i = 0; i < keys.size(); i++)
+            assertEquals(String.format("k%06d", i), keys.get(i));
+    }
+
+    @Test
+    void flushesIntoReadableTable() throws IOException {
+        StorageOptions options = new StorageOptions();
+        options.setDataDir(dir.toString());
+        options.setMemTableRep(MemTableRep.Type.ARENA);
+        SSTManager sstManager = new SSTManager(options);
+        MemTable memTable = new MemTable(sstManager, null);
+
+        for (int i = 0; i < 3000; i++)
+            memTable.put(String.format("key%05d", i), "value" + i);
+        for (String key : ODD_KEYS)
+            memTable.put(key, "odd-" + key);
+        for (int i = 0; i < 3000; i += 7)
+            memTable.delete(String.format("key%05d", i));
+        memTable.flush();
+
+        assertFalse(sstManager.getAllSSTables().isEmpty());
+        for (int i = 0; i < 3000; i++) {
+            String key = String.format("key%05d", i);
+            assertEquals(i % 7 == 0 ? null : "value" + i, memTable.get(key), key);
+        }
+        for (String key : ODD_KEYS)
+            assertEquals("odd-" + key, memTable.get(key));
+        memTable.close();
+    }
+}
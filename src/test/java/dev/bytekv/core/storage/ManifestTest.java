@@ -0,0 +1,169 @@
+package dev.bytekv.core.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ManifestTest {
+
+    @TempDir
+    Path dir;
+
+    private static VersionEdit edit(int lastTableId) {
+        return new VersionEdit().setLastTableId(lastTableId);
+    }
+
+    private void appendEdits(int count) throws IOException {
+        Manifest manifest = new Manifest(dir.toFile());
+        for (int i = 1; i <= count; i++)
+            manifest.append(edit(i));
+        manifest.close();
+    }
+
+    private File manifestFile() {
+        return new File(dir.toFile(), Manifest.FILE_NAME);
+    }
+
+    // header of a record with a payload of length bytes, the length checksum is right, the payload one isn't.
+    private static void writeHeader(DataOutputStream out, int length) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(new byte[] {(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+        out.writeInt(length);
+        out.writeInt((int) crc.getValue());
+        out.writeInt(0x12345678);
+    }
+
+    private static void flipByte(File file, long position) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(position);
+            int b = raf.read();
+            raf.seek(position);
+            raf.write(b ^ 0xFF);
+        }
+    }
+
+    @Test
+    void replaysEditsInOrder() throws IOException {
+        appendEdits(5);
+
+        List<VersionEdit> edits = new Manifest(dir.toFile()).replay();
+        assertEquals(5, edits.size());
+        for (int i = 0; i < 5; i++)
+            assertEquals(i + 1, edits.get(i).getLastTableId());
+    }
+
+    @Test
+    void ignoresTornLastRecord() throws IOException {
+        appendEdits(3);
+
+        // a crash in the middle of the fourth append: header promises more payload than made it to disk.
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(manifestFile(), true))) {
+            writeHeader(out, 64);
+            out.write(new byte[10]);
+        }
+
+        List<VersionEdit> edits = new Manifest(dir.toFile()).replay();
+        assertEquals(3, edits.size());
+        assertEquals(3, edits.get(2).getLastTableId());
+    }
+
+    @Test
+    void ignoresLastRecordWithBadChecksum() throws IOException {
+        appendEdits(3);
+
+        // complete length, garbled payload of the last record.
+        flipByte(manifestFile(), manifestFile().length() - 1);
+
+        assertEquals(2, new Manifest(dir.toFile()).replay().size());
+    }
+
+    @Test
+    void ignoresZeroFilledTail() throws IOException {
+        appendEdits(3);
+
+        // what a crashed append can leave on disk: the file grew, its data never got there.
+        try (FileOutputStream out = new FileOutputStream(manifestFile(), true)) {
+            out.write(new byte[40]);
+        }
+
+        assertEquals(3, new Manifest(dir.toFile()).replay().size());
+    }
+
+    @Test
+    void refusesCorruptRecordWithEditsBehindIt() throws IOException {
+        appendEdits(3);
+
+        // payload of the first record starts right after its 12 byte header.
+        flipByte(manifestFile(), 12);
+
+        assertThrows(IOException.class, () -> new Manifest(dir.toFile()).replay());
+    }
+
+    @Test
+    void refusesCorruptLengthWithEditsBehindIt() throws IOException {
+        appendEdits(3);
+
+        // high byte of the first record's length, it now runs past the end of the file like a torn record would.
+        flipByte(manifestFile(), 0);
+
+        IOException e = assertThrows(IOException.class, () -> new Manifest(dir.toFile()).replay());
+        assertTrue(e.getMessage().contains("corrupt record header"), e.getMessage());
+    }
+
+    @Test
+    void storeRecoversAndKeepsLoggingAfterTornTail() throws IOException {
+        StorageOptions options = new StorageOptions();
+        options.setDataDir(dir.toString());
+        // no compaction in between, every flush stays its own table.
+        options.setLevel0CompactionTrigger(100);
+
+        SSTManager first = new SSTManager(options);
+        first.flushToSSTable(table("a", 0, 100));
+        first.flushToSSTable(table("b", 0, 100));
+
+        try (FileOutputStream out = new FileOutputStream(manifestFile(), true)) {
+            out.write(new byte[] {0, 0, 1, 0, 7, 7});
+        }
+
+        SSTManager second = new SSTManager(options);
+        assertEquals(2, second.getAllSSTables().size());
+        second.flushToSSTable(table("c", 0, 100));
+
+        // the torn record must not have ended up in front of the third table's edit.
+        SSTManager third = new SSTManager(options);
+        assertEquals(3, third.getAllSSTables().size());
+        Version version = third.acquireVersion();
+        try {
+            for (String prefix : new String[] {"a", "b", "c"}) {
+                LookupKey key = new LookupKey(prefix + "00042");
+                String value = null;
+                for (SSTable table : version.tablesForKey(key)) {
+                    value = table.get(key);
+                    if (value != null)
+                        break;
+                }
+                assertEquals(prefix + "-value42", value);
+            }
+        } finally {
+            version.release();
+        }
+    }
+
+    private static TreeMap<String, String> table(String prefix, int from, int to) {
+        TreeMap<String, String> entries = new TreeMap<>();
+        for (int i = from; i < to; i++)
+            entries.put(prefix + String.format("%05d", i), prefix + "-value" + i);
+        return entries;
+    }
+}
@@ -0,0 +1,180 @@
+package dev.bytekv.core.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dev.bytekv.core.LRUCache;
+
+class MemTableTest {
+
+    private static final int WRITERS = 8;
+    private static final int OPS_PER_WRITER = 5000;
+    private static final int KEYS = 64;
+
+    @TempDir
+    Path dir;
+
+    private MemTable memTable(MemTableRep.Type rep, long writeBufferSize) throws IOException {
+        StorageOptions options = new StorageOptions();
+        options.setDataDir(dir.toString());
+        options.setMemTableRep(rep);
+        options.setWriteBufferSize(writeBufferSize);
+        return new MemTable(new SSTManager(options), null);
+    }
+
+    // a write as the memtable ordered it, value null for a delete.
+    private static final class Write {
+        final long sequence;
+        final String value;
+
+        Write(long sequence, String value) {
+            this.sequence = sequence;
+            this.value = value;
+        }
+    }
+
+    @Test
+    void lastWriteWins() throws IOException {
+        MemTable memTable = memTable(MemTableRep.Type.SKIP_LIST, 1024 * 1024);
+
+        long put = memTable.put("k", "v1");
+        long delete = memTable.delete("k");
+        assertTrue(delete > put);
+        assertNull(memTable.get("k"));
+
+        memTable.put("k", "v2");
+        assertEquals("v2", memTable.get("k"));
+
+        memTable.flush();
+        assertEquals("v2", memTable.get("k"));
+
+        // the key only lives in an SSTable now, the tombstone has to hide it.
+        memTable.delete("k");
+        assertNull(memTable.get("k"));
+        memTable.flush();
+        assertNull(memTable.get("k"));
+        memTable.close();
+    }
+
+    @Test
+    void valuesThatLookLikeMarkersAreJustValues() throws IOException {
+        MemTable memTable = memTable(MemTableRep.Type.SKIP_LIST, 1024 * 1024);
+
+        memTable.put("deleted", "__<deleted>__");
+        memTable.put("expires", "__<expires>__0000000000000001x");
+        assertEquals("__<deleted>__", memTable.get("deleted"));
+        assertEquals("__<expires>__0000000000000001x", memTable.get("expires"));
+
+        memTable.flush();
+        assertEquals("__<deleted>__", memTable.get("deleted"));
+        assertEquals("__<expires>__0000000000000001x", memTable.get("expires"));
+        memTable.close();
+    }
+
+    @Test
+    void rejectsWritesOfKeysWithUnpairedSurrogates() throws IOException {
+        MemTable memTable = memTable(MemTableRep.Type.SKIP_LIST, 1024 * 1024);
+
+        assertThrows(IllegalArgumentException.class, () -> memTable.put("a\uD800", "v"));
+        assertThrows(IllegalArgumentException.class, () -> memTable.delete("\uDC00a"));
+        assertThrows(IllegalArgumentException.class, () -> memTable.put("k", null));
+
+        // nothing can be stored under such a key, a read simply misses.
+        assertNull(memTable.get("a\uD800b"));
+        assertNull(memTable.get("\uDC00"));
+
+        memTable.put("a\uD83D\uDE00", "pair");
+        assertEquals("pair", memTable.get("a\uD83D\uDE00"));
+        memTable.close();
+    }
+
+    @Test
+    void concurrentWritesSettleOnHighestSequenceSkipList() throws Exception {
+        concurrentWritesSettleOnHighestSequence(MemTableRep.Type.SKIP_LIST);
+    }
+
+    @Test
+    void concurrentWritesSettleOnHighestSequenceArena() throws Exception {
+        concurrentWritesSettleOnHighestSequence(MemTableRep.Type.ARENA);
+    }
+
+    /*
+        * Writers race on a few keys with puts and deletes while readers keep reading, small write buffer so memtables get sealed
+          and flushed in the middle of it. Every write updates the cache with its sequence the way Coordinator does. In the end
+          memtable and cache must both agree with the write that got the biggest sequence for each key.
+     */
+    private void concurrentWritesSettleOnHighestSequence(MemTableRep.Type rep) throws Exception {
+        MemTable memTable = memTable(rep, 16 * 1024);
+        LRUCache cache = new LRUCache(KEYS / 2);
+        ConcurrentHashMap<String, Write> newest = new ConcurrentHashMap<>();
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + 2);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPS_PER_WRITER; i++) {
+                    String key = "key" + random.nextInt(KEYS);
+                    Write write;
+                    if (random.nextInt(4) == 0) {
+                        write = new Write(memTable.delete(key), null);
+                        cache.delete(key, write.sequence);
+                    } else {
+                        String value = writer + ":" + i;
+                        write = new Write(memTable.put(key, value), value);
+                        cache.put(key, value, write.sequence);
+                    }
+                    newest.merge(key, write, (a, b) -> a.sequence > b.sequence ? a : b);
+                }
+                return null;
+            }));
+        }
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            readers.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (writing.get()) {
+                    String value = memTable.get("key" + random.nextInt(KEYS));
+                    assertTrue(value == null || value.matches("\\d+:\\d+"), value);
+                }
+                return null;
+            }));
+        }
+
+        for (Future<?> writer : writers)
+            writer.get(60, TimeUnit.SECONDS);
+        writing.set(false);
+        for (Future<?> reader : readers)
+            reader.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        for (String key : newest.keySet()) {
+            String expected = newest.get(key).value;
+            assertEquals(expected, memTable.get(key), key);
+            String cached = cache.get(key);
+            if (cached != null)
+                assertEquals(expected, cached, key);
+        }
+
+        memTable.flush();
+        for (String key : newest.keySet())
+            assertEquals(newest.get(key).value, memTable.get(key), key);
+        memTable.close();
+    }
+}
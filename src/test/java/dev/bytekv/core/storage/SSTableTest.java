@@ -0,0 +1,196 @@
+package dev.bytekv.core.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dev.bytekv.proto.SSTWriteOuterClass;
+
+class SSTableTest {
+
+    private static final int KEYS = 2000;
+
+    @TempDir
+    Path dir;
+
+    private StorageOptions options() {
+        StorageOptions options = new StorageOptions();
+        options.setDataDir(dir.toString());
+        options.setBlockSize(512);
+        return options;
+    }
+
+    private static String key(int i) {
+        return String.format("key%05d", i);
+    }
+
+    // every 10th key deleted, every 10th one after that expiring in an hour, the rest plain values.
+    private static File writeTable(StorageOptions options, int id, long expiresAt) throws IOException {
+        SSTableWriter writer = new SSTableWriter(id, KEYS, options);
+        for (int i = 0; i < KEYS; i++) {
+            if (i % 10 == 0)
+                writer.delete(key(i));
+            else if (i % 10 == 1)
+                writer.put(key(i), "value" + i, expiresAt);
+            else
+                writer.put(key(i), "value" + i);
+        }
+        SSTable table = writer.finish();
+        table.release();
+        return new File(options.getDataDir(), SSTable.fileName(id));
+    }
+
+    @Test
+    void roundTripsValuesTombstonesAndExpiry() throws IOException {
+        StorageOptions options = options();
+        long expiresAt = System.currentTimeMillis() + 3_600_000;
+        File file = writeTable(options, 1, expiresAt);
+
+        SSTable table = new SSTable(file, options);
+        try {
+            assertEquals(KEYS, table.getEntryCount());
+            assertEquals(KEYS / 10, table.getTombstoneCount());
+            assertEquals(key(0), table.getMinKey());
+            assertEquals(key(KEYS - 1), table.getMaxKey());
+
+            for (int i = 0; i < KEYS; i++) {
+                String value = table.get(key(i));
+                if (i % 10 == 0)
+                    assertSame(MemTable.TOMBSTONE, value, key(i));
+                else
+                    assertEquals("value" + i, value, key(i));
+            }
+            assertNull(table.get("key"));
+            assertNull(table.get("key99999"));
+
+            Iterator<SSTable.Record> it = table.iterator();
+            for (int i = 0; i < KEYS; i++) {
+                assertTrue(it.hasNext());
+                SSTable.Record record = it.next();
+                assertEquals(key(i), record.key);
+                assertEquals(i % 10 == 0, record.tombstone);
+                assertEquals(i % 10 == 1 ? expiresAt : 0, record.expiresAt);
+            }
+            assertFalse(it.hasNext());
+        } finally {
+            table.release();
+        }
+    }
+
+    @Test
+    void expiredValueReadsAsDeleted() throws IOException {
+        StorageOptions options = options();
+        File file = writeTable(options, 1, System.currentTimeMillis() - 1);
+
+        SSTable table = new SSTable(file, options);
+        try {
+            assertSame(MemTable.TOMBSTONE, table.get(key(1)));
+            assertEquals("value2", table.get(key(2)));
+        } finally {
+            table.release();
+        }
+    }
+
+    @Test
+    void corruptedBlockFailsItsChecksum() throws IOException {
+        StorageOptions options = options();
+        File file = writeTable(options, 1, System.currentTimeMillis() + 3_600_000);
+
+        // first data block starts the file, flip a byte inside its first entry.
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(12);
+            int b = raf.read();
+            raf.seek(12);
+            raf.write(b ^ 0xFF);
+        }
+
+        SSTable table = new SSTable(file, options);
+        try {
+            IOException e = assertThrows(IOException.class, () -> table.get(key(2)));
+            assertTrue(e.getMessage().contains("checksum mismatch"), e.getMessage());
+            // blocks after the broken one are still fine.
+            assertEquals("value" + (KEYS - 1), table.get(key(KEYS - 1)));
+
+            Iterator<SSTable.Record> it = table.iterator();
+            assertThrows(UncheckedIOException.class, it::hasNext);
+        } finally {
+            table.release();
+        }
+    }
+
+    /*
+        * An sstable-NNN folder the way flush wrote it before block tables: length prefixed SSTWrite records in .data, one
+          "key::||::offset" line per sampled record in .index. Back then a memtable delete was flushed as a plain TOMBSTONE value,
+          only SSTable.delete set isTombstone.
+     */
+    private static File writeLegacyTable(File parent, int id) throws IOException {
+        File folder = new File(parent, String.format("sstable-%03d", id));
+        assertTrue(folder.mkdirs());
+        try (DataOutputStream data = new DataOutputStream(new FileOutputStream(new File(folder, folder.getName() + ".data")))) {
+            writeLegacyRecord(data, "a", "1", false);
+            writeLegacyRecord(data, "b", MemTable.TOMBSTONE, false);
+            writeLegacyRecord(data, "c", "", true);
+            writeLegacyRecord(data, "d", "4", false);
+        }
+        Files.write(new File(folder, folder.getName() + ".index").toPath(), "a::||::0\n".getBytes(StandardCharsets.UTF_8));
+        return folder;
+    }
+
+    private static void writeLegacyRecord(DataOutputStream data, String key, String value, boolean tombstone) throws IOException {
+        byte[] bytes = SSTWriteOuterClass.SSTWrite.newBuilder()
+                .setTimestamp(System.currentTimeMillis())
+                .setKey(key)
+                .setValue(value)
+                .setIsTombstone(tombstone)
+                .build()
+                .toByteArray();
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    @Test
+    void legacyTableDeletesReadAsDeleted() throws IOException {
+        StorageOptions options = options();
+        File folder = writeLegacyTable(dir.toFile(), 1);
+
+        SSTable table = new SSTable(folder, options);
+        try {
+            assertTrue(table.isLegacy());
+            assertEquals("1", table.get("a"));
+            assertSame(MemTable.TOMBSTONE, table.get("b"));
+            assertSame(MemTable.TOMBSTONE, table.get("c"));
+            assertEquals("4", table.get("d"));
+            assertNull(table.get("e"));
+
+            // get and scan (what compaction uses) have to agree on what a delete is.
+            Iterator<SSTable.Record> it = table.iterator();
+            for (String key : new String[] {"a", "b", "c", "d"}) {
+                SSTable.Record record = it.next();
+                assertEquals(key, record.key);
+                assertEquals(key.equals("b") || key.equals("c"), record.tombstone, key);
+            }
+            assertFalse(it.hasNext());
+        } finally {
+            table.release();
+        }
+
+        // read through the store, the delete must not come back as a value.
+        MemTable memTable = new MemTable(new SSTManager(options), null);
+        assertEquals("1", memTable.get("a"));
+        assertNull(memTable.get("b"));
+        assertNull(memTable.get("c"));
+        memTable.close();
+    }
+}
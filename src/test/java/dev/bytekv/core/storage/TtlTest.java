@@ -0,0 +1,124 @@
+package dev.bytekv.core.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TtlTest {
+
+    private static final int KEYS = 200;
+
+    @TempDir
+    Path dir;
+
+    private SSTManager sstManager(MemTableRep.Type rep, int level0CompactionTrigger) throws IOException {
+        StorageOptions options = new StorageOptions();
+        options.setDataDir(dir.toString());
+        options.setMemTableRep(rep);
+        options.setLevel0CompactionTrigger(level0CompactionTrigger);
+        return new SSTManager(options);
+    }
+
+    private static String key(int i) {
+        return String.format("key%05d", i);
+    }
+
+    private static void sleepUntil(long millis) throws InterruptedException {
+        long left = millis - System.currentTimeMillis();
+        if (left > 0)
+            Thread.sleep(left + 5);
+    }
+
+    @Test
+    void expiresInMemTableAndAfterFlushSkipList() throws Exception {
+        expiresInMemTableAndAfterFlush(MemTableRep.Type.SKIP_LIST);
+    }
+
+    @Test
+    void expiresInMemTableAndAfterFlushArena() throws Exception {
+        expiresInMemTableAndAfterFlush(MemTableRep.Type.ARENA);
+    }
+
+    private void expiresInMemTableAndAfterFlush(MemTableRep.Type rep) throws Exception {
+        MemTable memTable = new MemTable(sstManager(rep, 100), null);
+
+        long expiresAt = System.currentTimeMillis() + 1000;
+        memTable.put("short", "gone soon", expiresAt);
+        memTable.put("long", "still here", System.currentTimeMillis() + 3_600_000);
+        memTable.put("plain", "forever");
+        memTable.put("past", "never seen", System.currentTimeMillis() - 1);
+
+        assertEquals("gone soon", memTable.get("short"));
+        assertNull(memTable.get("past"));
+
+        memTable.flush();
+        assertEquals("gone soon", memTable.get("short"));
+        assertEquals("still here", memTable.get("long"));
+        assertNull(memTable.get("past"));
+
+        sleepUntil(expiresAt);
+        assertNull(memTable.get("short"));
+        assertEquals("still here", memTable.get("long"));
+        assertEquals("forever", memTable.get("plain"));
+
+        // an expired value in a newer memtable hides an older one on disk, like a delete.
+        memTable.put("plain", "short lived", System.currentTimeMillis() - 1);
+        assertNull(memTable.get("plain"));
+        memTable.close();
+    }
+
+    @Test
+    void compactionDropsExpiredEntries() throws Exception {
+        SSTManager sstManager = sstManager(MemTableRep.Type.SKIP_LIST, 2);
+        MemTable memTable = new MemTable(sstManager, null);
+
+        // odd keys expire, even ones don't. Second table overwrites the even ones, so both tables span the same range and get merged.
+        long expiresAt = System.currentTimeMillis() + 500;
+        for (int i = 0; i < KEYS; i++) {
+            if (i % 2 == 1)
+                memTable.put(key(i), "ttl" + i, expiresAt);
+            else
+                memTable.put(key(i), "first" + i);
+        }
+        memTable.flush();
+        sleepUntil(expiresAt);
+
+        for (int i = 0; i < KEYS; i += 2)
+            memTable.put(key(i), "second" + i);
+        memTable.flush();
+
+        CompactionStats stats = sstManager.getCompactionStats();
+        long deadline = System.currentTimeMillis() + 30_000;
+        while (stats.getCompactions() == 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(20);
+        assertTrue(stats.getCompactions() > 0, "no compaction ran");
+        assertTrue(stats.getFilteredEntries() >= KEYS / 2, "filtered " + stats.getFilteredEntries());
+
+        int entries = 0;
+        Version version = sstManager.acquireVersion();
+        try {
+            for (SSTable table : version.allTables()) {
+                Iterator<SSTable.Record> it = table.iterator();
+                while (it.hasNext()) {
+                    SSTable.Record record = it.next();
+                    int i = Integer.parseInt(record.key.substring(3));
+                    assertEquals(0, i % 2, record.key + " outlived its TTL");
+                    assertEquals("second" + i, record.value);
+                    entries++;
+                }
+            }
+        } finally {
+            version.release();
+        }
+        assertEquals(KEYS / 2, entries);
+
+        for (int i = 0; i < KEYS; i++)
+            assertEquals(i % 2 == 1 ? null : "second" + i, memTable.get(key(i)), key(i));
+        memTable.close();
+    }
+}